@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.event;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventManagerBenchmark {
+	private final EventManager manager = new EventManager();
+	private final BenchmarkEvent event = new BenchmarkEvent();
+
+	@Param({"1", "10", "100", "1000"})
+	public int listeners;
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < this.listeners; i++) {
+			// Mix exact and supertype registrations with distinct orders.
+			if (i % 2 == 0)
+				this.manager.register(new ListenerRegistration<>(BenchmarkEvent.class, e -> e.count++, i));
+			else
+				this.manager.register(new ListenerRegistration<>(Event.class, e -> {}, -i));
+		}
+	}
+
+	@Benchmark
+	public boolean postEvent() {
+		return this.manager.postEvent(this.event);
+	}
+
+	public static class BenchmarkEvent implements Event {
+		private int count;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.event;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of invoking a listener method through a hand-written lambda,
+ * through a listener generated by {@link EventManager#register(Object)} and through reflection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerBindingBenchmark {
+	private final Holder holder = new Holder();
+	private final BenchmarkEvent event = new BenchmarkEvent();
+
+	private EventListener<BenchmarkEvent> lambda, generated;
+	private Method method;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		this.lambda = this.holder::onEvent;
+		this.generated = (EventListener<BenchmarkEvent>) new EventManager().register(this.holder).get(0).listener;
+		this.method = Holder.class.getDeclaredMethod("onEvent", BenchmarkEvent.class);
+	}
+
+	@Benchmark
+	public int lambda() throws Exception {
+		this.lambda.handle(this.event);
+		return this.holder.count;
+	}
+
+	@Benchmark
+	public int generated() throws Exception {
+		this.generated.handle(this.event);
+		return this.holder.count;
+	}
+
+	@Benchmark
+	public int reflective() throws Exception {
+		this.method.invoke(this.holder, this.event);
+		return this.holder.count;
+	}
+
+	public static class Holder {
+		private int count;
+
+		@Listener
+		public void onEvent(BenchmarkEvent event) {
+			this.count++;
+		}
+	}
+
+	public static class BenchmarkEvent implements Event {}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultLoggerBenchmark {
+	private final DefaultLogger logger = new DefaultLogger(DefaultLoggerBenchmark.class.getName());
+	private PrintStream out;
+
+	@Setup
+	public void setup() {
+		this.out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(this.out);
+	}
+
+	@Benchmark
+	public void info() {
+		this.logger.info("Downloading missing dependencies ...");
+	}
+
+	@Benchmark
+	public void infoFormat() {
+		this.logger.info("Downloading from url {} to file {} ...", "https://repo.maven.apache.org/maven2/", "libraries/javafx-base.jar");
+	}
+
+	@Benchmark
+	public void traceDisabled() {
+		this.logger.trace("Downloading from url {} to file {} ...", "https://repo.maven.apache.org/maven2/", "libraries/javafx-base.jar");
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a logger obtained directly from the bound factory with a proxy obtained before binding.
+ * Calls use a disabled level so that only the dispatch cost is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerProxyBenchmark {
+	private Logger direct, proxy;
+
+	@Setup
+	public void setup() {
+		System.setProperty("app.directory", System.getProperty("java.io.tmpdir") + File.separator);
+
+		LoggerFactoryProxy factory = new LoggerFactoryProxy();
+		this.proxy = factory.getLogger(LoggerProxyBenchmark.class.getName() + ".Proxy");
+
+		// Use the default logger first, as the application does during startup
+		for (int i = 0; i < 20_000; i++)
+			this.proxy.trace("Startup message {}", i);
+
+		ILoggerFactory delegate = LoggerFactory.getILoggerFactory();
+		factory.setDelegate(delegate);
+		this.direct = delegate.getLogger(LoggerProxyBenchmark.class.getName() + ".Direct");
+	}
+
+	@Benchmark
+	public void direct() {
+		this.direct.trace("Disabled message {}", this);
+	}
+
+	@Benchmark
+	public void proxy() {
+		this.proxy.trace("Disabled message {}", this);
+	}
+
+	@Benchmark
+	public boolean direct_isDebugEnabled() {
+		return this.direct.isDebugEnabled();
+	}
+
+	@Benchmark
+	public boolean proxy_isDebugEnabled() {
+		return this.proxy.isDebugEnabled();
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.task;
+
+import net.smoofyuniverse.common.task.io.ListenedInputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenedInputStreamBenchmark {
+	private static final int SIZE = 1 << 20;
+
+	private final byte[] data = new byte[SIZE];
+
+	@Param({"4096", "65536"})
+	public int bufferSize;
+
+	private byte[] buffer;
+
+	@Setup
+	public void setup() {
+		new Random(0).nextBytes(this.data);
+		this.buffer = new byte[this.bufferSize];
+	}
+
+	@Benchmark
+	public long raw() throws IOException {
+		return read(new ByteArrayInputStream(this.data));
+	}
+
+	@Benchmark
+	public long listened() throws IOException {
+		ListenedInputStream in = new ListenedInputStream(new ByteArrayInputStream(this.data), new CountingListener());
+		read(in);
+		return in.listener.getTotal();
+	}
+
+	private long read(InputStream in) throws IOException {
+		long total = 0;
+		int len;
+		while ((len = in.read(this.buffer)) != -1)
+			total += len;
+		return total;
+	}
+
+	static class CountingListener implements IncrementalListener {
+		private final AtomicLong total = new AtomicLong();
+		private volatile boolean cancelled;
+
+		@Override
+		public long getTotal() {
+			return this.total.get();
+		}
+
+		@Override
+		public void increment(long value) {
+			this.total.addAndGet(value);
+		}
+
+		@Override
+		public boolean isCancellable() {
+			return true;
+		}
+
+		@Override
+		public void setCancellable(boolean value) {}
+
+		@Override
+		public boolean isCancelled() {
+			return this.cancelled;
+		}
+
+		@Override
+		public void setCancelled(boolean value) {
+			this.cancelled = value;
+		}
+
+		@Override
+		public void cancelled(Consumer<Boolean> action) {}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.task;
+
+import net.smoofyuniverse.common.task.impl.ProgressIncrementalListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressIncrementalListenerBenchmark {
+	private ProgressIncrementalListener listener;
+
+	@Setup
+	public void setup() {
+		this.listener = new ProgressIncrementalListener(new VolatileProgressListener(), Long.MAX_VALUE, false);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void increment_1() {
+		this.listener.increment(1024);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void increment_4() {
+		this.listener.increment(1024);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void increment_8() {
+		this.listener.increment(1024);
+	}
+
+	static class VolatileProgressListener implements ProgressListener {
+		private volatile double progress;
+		private volatile boolean cancelled;
+
+		@Override
+		public double getProgress() {
+			return this.progress;
+		}
+
+		@Override
+		public void setProgress(double value) {
+			this.progress = value;
+		}
+
+		@Override
+		public boolean isCancellable() {
+			return true;
+		}
+
+		@Override
+		public void setCancellable(boolean value) {}
+
+		@Override
+		public boolean isCancelled() {
+			return this.cancelled;
+		}
+
+		@Override
+		public void setCancelled(boolean value) {
+			this.cancelled = value;
+		}
+
+		@Override
+		public void cancelled(Consumer<Boolean> action) {}
+	}
+}
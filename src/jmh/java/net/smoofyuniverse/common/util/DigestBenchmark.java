@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DigestBenchmark {
+
+	@Param({"1024", "1048576", "67108864", "1073741824"})
+	public long size;
+
+	private Path file;
+
+	@Setup
+	public void setup() throws IOException {
+		this.file = Files.createTempFile("digest", ".bin");
+		byte[] chunk = new byte[1 << 20];
+		new Random(0).nextBytes(chunk);
+		try (OutputStream out = Files.newOutputStream(this.file)) {
+			for (long written = 0; written < this.size; written += chunk.length)
+				out.write(chunk, 0, (int) Math.min(chunk.length, this.size - written));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.file);
+	}
+
+	// The previous implementation
+	@Benchmark
+	public byte[] stream() throws IOException, NoSuchAlgorithmException {
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		try (InputStream in = Files.newInputStream(this.file)) {
+			byte[] buffer = new byte[4096];
+			int len;
+			while ((len = in.read(buffer)) != -1)
+				md.update(buffer, 0, len);
+		}
+		return md.digest();
+	}
+
+	@Benchmark
+	public byte[] channel() throws IOException, NoSuchAlgorithmException {
+		return channel(1 << 16);
+	}
+
+	private byte[] channel(int bufferSize) throws IOException, NoSuchAlgorithmException {
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+			IOUtil.updateDigest(md, channel, ByteBuffer.allocate(bufferSize));
+		}
+		return md.digest();
+	}
+
+	@Benchmark
+	public byte[] digest() throws IOException, NoSuchAlgorithmException {
+		return IOUtil.digest(this.file, "SHA-256");
+	}
+}
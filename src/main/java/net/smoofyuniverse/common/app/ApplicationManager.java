@@ -26,16 +26,20 @@ import com.grack.nanojson.JsonObject;
 import com.grack.nanojson.JsonParser;
 import javafx.application.Platform;
 import net.smoofyuniverse.common.download.ConnectionConfig;
+import net.smoofyuniverse.common.download.ContentStore;
 import net.smoofyuniverse.common.environment.ApplicationUpdater;
 import net.smoofyuniverse.common.environment.DependencyInfo;
 import net.smoofyuniverse.common.environment.DependencyManager;
 import net.smoofyuniverse.common.environment.source.GitHubReleaseSource;
 import net.smoofyuniverse.common.environment.source.ReleaseSource;
 import net.smoofyuniverse.common.event.EventManager;
+import net.smoofyuniverse.common.event.EventMetrics;
 import net.smoofyuniverse.common.event.app.ApplicationLocaleChangeEvent;
 import net.smoofyuniverse.common.event.app.ApplicationStateChangeEvent;
 import net.smoofyuniverse.common.fx.dialog.Popup;
 import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.common.logger.LogFormat;
+import net.smoofyuniverse.common.logger.LoggerLevels;
 import net.smoofyuniverse.common.platform.OperatingSystem;
 import net.smoofyuniverse.common.task.BaseListener;
 import net.smoofyuniverse.common.util.ResourceLoader;
@@ -53,6 +57,7 @@ import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The application.
@@ -77,6 +82,7 @@ public class ApplicationManager {
 	private EventManager eventManager;
 
 	private ConnectionConfig connectionConfig;
+	private Optional<ContentStore> contentStore;
 	private Optional<Path> applicationJar;
 
 	/**
@@ -94,6 +100,22 @@ public class ApplicationManager {
 		this.resourceLoader = new ResourceLoader();
 		this.devEnvironment = arguments.getBoolean("development", "dev");
 
+		arguments.getString("logFormat").ifPresent(v -> {
+			try {
+				ApplicationLogger.setFormat(LogFormat.valueOf(v.toUpperCase(Locale.ROOT)));
+			} catch (IllegalArgumentException e) {
+				logger.warn("Unknown logger format: {}", v);
+			}
+		});
+
+		arguments.getString("logLevel").ifPresent(v -> {
+			try {
+				ApplicationLogger.setLevels(LoggerLevels.parse(v));
+			} catch (IllegalArgumentException e) {
+				logger.warn("Invalid logger levels: {}", e.getMessage());
+			}
+		});
+
 		Thread.setDefaultUncaughtExceptionHandler((t, e) -> logger.error("Uncaught exception in thread: {}", t.getName(), e));
 	}
 
@@ -197,11 +219,33 @@ public class ApplicationManager {
 			this.connectionConfig = b.connectTimeout(this.arguments.getInt("connectTimeout").orElse(3000))
 					.readTimeout(this.arguments.getInt("readTimeout").orElse(3000))
 					.userAgent(this.arguments.getString("userAgent").orElse(this.name + "/" + this.version))
-					.bufferSize(this.arguments.getInt("bufferSize").orElse(65536)).build();
+					.bufferSize(this.arguments.getInt("bufferSize").orElse(65536))
+					.segments(this.arguments.getInt("downloadSegments").orElse(4))
+					.segmentConcurrency(this.arguments.getInt("downloadConcurrency").orElse(4)).build();
 		}
 		return this.connectionConfig;
 	}
 
+	/**
+	 * Gets the content store shared by all applications of this user.
+	 * The store is located in the application directory, unless overridden by the argument {@code sharedStore}.
+	 * The argument {@code noSharedStore} disables the store.
+	 *
+	 * @return The content store.
+	 */
+	public Optional<ContentStore> getContentStore() {
+		if (this.contentStore == null) {
+			if (this.arguments.getBoolean("noSharedStore")) {
+				this.contentStore = Optional.empty();
+			} else {
+				Path dir = this.arguments.getString("sharedStore").map(Paths::get)
+						.orElseGet(() -> OperatingSystem.CURRENT.getApplicationDirectory().resolve("AppCommon").resolve("store"));
+				this.contentStore = Optional.of(new ContentStore(dir));
+			}
+		}
+		return this.contentStore;
+	}
+
 	/**
 	 * Determines whether the update check should be disabled.
 	 *
@@ -402,6 +446,15 @@ public class ApplicationManager {
 		return instance;
 	}
 
+	/**
+	 * Gets whether the application manager is available.
+	 *
+	 * @return Whether the application manager is available.
+	 */
+	public static boolean isAvailable() {
+		return instance != null;
+	}
+
 	public static void main(String[] args) {
 		new ApplicationManager(Arguments.parse(args)).launch();
 	}
@@ -469,6 +522,8 @@ public class ApplicationManager {
 
 		// Instantiate services
 		this.eventManager = new EventManager();
+		this.eventManager.setFlushExecutor(Platform::runLater);
+		this.arguments.getInt("slowListenerThreshold").ifPresent(t -> this.eventManager.setMetrics(new EventMetrics(t, TimeUnit.MILLISECONDS)));
 
 		// Setup application dependencies
 		if (!this.devEnvironment)
@@ -34,29 +34,44 @@ import java.net.URLConnection;
 /**
  * A configuration for URL connections.
  *
- * @param proxy          The proxy.
- * @param userAgent      The user agent.
- * @param connectTimeout The connect timeout in milliseconds.
- *                       See {@link URLConnection#setConnectTimeout(int)}.
- * @param readTimeout    The read timeout in milliseconds.
- *                       See {@link URLConnection#setReadTimeout(int)}.
- * @param bufferSize     The default byte buffer size for most IO operations with an open connection.
+ * @param proxy              The proxy.
+ * @param userAgent          The user agent.
+ * @param connectTimeout     The connect timeout in milliseconds.
+ *                           See {@link URLConnection#setConnectTimeout(int)}.
+ * @param readTimeout        The read timeout in milliseconds.
+ *                           See {@link URLConnection#setReadTimeout(int)}.
+ * @param bufferSize         The default byte buffer size for most IO operations with an open connection.
+ * @param segments           The maximum number of ranges a download of known size is split into.
+ *                           1 disables segmented downloads.
+ * @param segmentConcurrency The maximum number of ranges of a single download fetched concurrently.
  */
-public record ConnectionConfig(Proxy proxy, String userAgent, int connectTimeout, int readTimeout, int bufferSize) {
+public record ConnectionConfig(Proxy proxy, String userAgent, int connectTimeout, int readTimeout, int bufferSize,
+							   int segments, int segmentConcurrency) {
 
 	public ConnectionConfig(Proxy proxy, String userAgent, int connectTimeout, int readTimeout, int bufferSize) {
+		this(proxy, userAgent, connectTimeout, readTimeout, bufferSize, 1, 1);
+	}
+
+	public ConnectionConfig(Proxy proxy, String userAgent, int connectTimeout, int readTimeout, int bufferSize,
+							int segments, int segmentConcurrency) {
 		if (connectTimeout < 0)
 			throw new IllegalArgumentException("connectTimeout");
 		if (readTimeout < 0)
 			throw new IllegalArgumentException("readTimeout");
 		if (bufferSize < 64)
 			throw new IllegalArgumentException("bufferSize");
+		if (segments < 1)
+			throw new IllegalArgumentException("segments");
+		if (segmentConcurrency < 1)
+			throw new IllegalArgumentException("segmentConcurrency");
 
 		this.proxy = proxy == null ? Proxy.NO_PROXY : proxy;
 		this.userAgent = userAgent;
 		this.connectTimeout = connectTimeout;
 		this.readTimeout = readTimeout;
 		this.bufferSize = bufferSize;
+		this.segments = segments;
+		this.segmentConcurrency = segmentConcurrency;
 	}
 
 	/**
@@ -138,6 +153,8 @@ public record ConnectionConfig(Proxy proxy, String userAgent, int connectTimeout
 		b.connectTimeout = this.connectTimeout;
 		b.readTimeout = this.readTimeout;
 		b.bufferSize = this.bufferSize;
+		b.segments = this.segments;
+		b.segmentConcurrency = this.segmentConcurrency;
 		b.userAgent = this.userAgent;
 		b.proxy = this.proxy;
 		return b;
@@ -157,6 +174,7 @@ public record ConnectionConfig(Proxy proxy, String userAgent, int connectTimeout
 	 */
 	public static class Builder {
 		private int connectTimeout, readTimeout, bufferSize;
+		private int segments = 1, segmentConcurrency = 1;
 		private String userAgent;
 		private Proxy proxy;
 
@@ -193,6 +211,28 @@ public record ConnectionConfig(Proxy proxy, String userAgent, int connectTimeout
 			return this;
 		}
 
+		/**
+		 * Sets the maximum number of ranges a download is split into.
+		 *
+		 * @param v The maximum number of segments.
+		 * @return this.
+		 */
+		public Builder segments(int v) {
+			this.segments = v;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of ranges of a single download fetched concurrently.
+		 *
+		 * @param v The maximum number of concurrent segments.
+		 * @return this.
+		 */
+		public Builder segmentConcurrency(int v) {
+			this.segmentConcurrency = v;
+			return this;
+		}
+
 		/**
 		 * Sets the user agent.
 		 *
@@ -221,7 +261,8 @@ public record ConnectionConfig(Proxy proxy, String userAgent, int connectTimeout
 		 * @return The new configuration.
 		 */
 		public ConnectionConfig build() {
-			return new ConnectionConfig(this.proxy, this.userAgent, this.connectTimeout, this.readTimeout, this.bufferSize);
+			return new ConnectionConfig(this.proxy, this.userAgent, this.connectTimeout, this.readTimeout, this.bufferSize,
+					this.segments, this.segmentConcurrency);
 		}
 	}
 }
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.download;
+
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.common.util.IOUtil;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed store of verified files, shared by all applications of the same user.
+ * <p>
+ * Files are stored as blobs identified by their digest.
+ * Blobs are verified with the same install marker as downloaded files, so a blob modified through a link is detected and discarded.
+ * A file matching a stored blob is installed by creating a hard link to the blob, or a copy if links are not supported.
+ * Each blob records the files installed from it, so that a blob is deleted once none of these files still has its content.
+ * <p>
+ * The store can be used concurrently by several processes.
+ * Modifications are serialized by a lock file, while digests are computed outside of the lock.
+ */
+public final class ContentStore {
+	private static final Logger logger = ApplicationLogger.get(ContentStore.class);
+	private static final Pattern ALGORITHM = Pattern.compile("[A-Za-z0-9-]+"), DIGEST = Pattern.compile("[0-9a-fA-F]+");
+	private static final Object localLock = new Object();
+
+	/**
+	 * The directory of this store.
+	 */
+	public final Path directory;
+
+	/**
+	 * Creates a store.
+	 *
+	 * @param directory The directory.
+	 */
+	public ContentStore(Path directory) {
+		if (directory == null)
+			throw new IllegalArgumentException("directory");
+		this.directory = directory.toAbsolutePath();
+	}
+
+	/**
+	 * Checks whether the file can be stored, ie has a digest.
+	 *
+	 * @param info The file information.
+	 * @return Whether the file can be stored.
+	 */
+	public static boolean isStorable(FileInfo info) {
+		return info.digest != null && info.digestAlgorithm != null
+				&& DIGEST.matcher(info.digest).matches() && ALGORITHM.matcher(info.digestAlgorithm).matches();
+	}
+
+	/**
+	 * Gets the path to the blob of the file.
+	 *
+	 * @param info The file information.
+	 * @return The blob.
+	 */
+	public Path getBlob(FileInfo info) {
+		if (!isStorable(info))
+			throw new IllegalArgumentException("info");
+
+		String digest = info.digest.toLowerCase(Locale.ROOT);
+		return this.directory.resolve("blobs").resolve(info.digestAlgorithm.toLowerCase(Locale.ROOT))
+				.resolve(digest.substring(0, Math.min(2, digest.length()))).resolve(digest);
+	}
+
+	/**
+	 * Installs the file from this store if it contains a blob with the same digest.
+	 *
+	 * @param info   The file information.
+	 * @param target The target file.
+	 * @return Whether the file has been installed.
+	 */
+	public boolean install(FileInfo info, Path target) {
+		if (!isStorable(info))
+			return false;
+
+		Path blob = getBlob(info);
+		if (!Files.isRegularFile(blob))
+			return false;
+
+		// The digest is checked outside the lock as it may be computed
+		// The link is staged under a unique name, so that no download ever writes through it
+		Path tempFile = getTempFile(target);
+		try {
+			if (!info.matches(blob)) {
+				locked(() -> {
+					if (!InstallMarker.matches(blob, info.digestAlgorithm, info.digest))
+						delete(blob);
+					return null;
+				});
+				return false;
+			}
+
+			Files.createDirectories(target.toAbsolutePath().getParent());
+			linkOrCopy(blob, tempFile);
+
+			return locked(() -> {
+				// The blob might have been collected meanwhile
+				if (!Files.isRegularFile(blob)) {
+					Files.deleteIfExists(tempFile);
+					return false;
+				}
+
+				InstallMarker.delete(target);
+				IOUtil.moveAtomically(tempFile, target);
+				InstallMarker.write(target, info.digestAlgorithm, info.digest);
+
+				addReference(blob, target);
+				return true;
+			});
+		} catch (IOException e) {
+			logger.warn("Failed to install file {} from store", target, e);
+			try {
+				Files.deleteIfExists(tempFile);
+			} catch (IOException ignored) {
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the verified file to this store.
+	 * Does nothing if this store already contains a blob with the same digest, except recording the file.
+	 *
+	 * @param info The file information.
+	 * @param file The file, whose digest has been verified.
+	 */
+	public void add(FileInfo info, Path file) {
+		if (!isStorable(info))
+			return;
+
+		Path blob = getBlob(info);
+		Path tempFile = null;
+		try {
+			// The digest is checked outside the lock as it may be computed
+			if (!info.matches(blob)) {
+				Files.createDirectories(blob.getParent());
+				tempFile = getTempFile(blob);
+				linkOrCopy(file, tempFile);
+			}
+
+			Path newBlob = tempFile;
+			locked(() -> {
+				if (newBlob != null) {
+					if (InstallMarker.matches(blob, info.digestAlgorithm, info.digest)) {
+						// Added concurrently
+						Files.delete(newBlob);
+					} else {
+						delete(blob);
+						IOUtil.moveAtomically(newBlob, blob);
+						InstallMarker.write(blob, info.digestAlgorithm, info.digest);
+					}
+				}
+				addReference(blob, file);
+				return null;
+			});
+		} catch (IOException e) {
+			logger.warn("Failed to add file {} to store", file, e);
+			if (tempFile != null) {
+				try {
+					Files.deleteIfExists(tempFile);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the blobs which are no longer used by any file.
+	 * A file uses a blob if it is a link to the blob, or if it was installed from the blob and has not been modified since.
+	 *
+	 * @return The number of deleted blobs.
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	public int collectGarbage() throws IOException {
+		Path blobs = this.directory.resolve("blobs");
+		if (!Files.isDirectory(blobs))
+			return 0;
+
+		return locked(() -> {
+			List<Path> list;
+			try (Stream<Path> st = Files.walk(blobs, 3)) {
+				list = st.filter(p -> p.getNameCount() - blobs.getNameCount() == 3 && DIGEST.matcher(p.getFileName().toString()).matches()).toList();
+			}
+
+			int count = 0;
+			for (Path blob : list) {
+				String algorithm = blob.getParent().getParent().getFileName().toString(), digest = blob.getFileName().toString();
+				Path refsFile = getReferencesFile(blob);
+
+				List<String> refs = Files.exists(refsFile) ? Files.readAllLines(refsFile) : List.of();
+				List<String> liveRefs = new ArrayList<>();
+				for (String ref : refs) {
+					if (isUsing(Paths.get(ref), blob, algorithm, digest))
+						liveRefs.add(ref);
+				}
+
+				if (liveRefs.isEmpty()) {
+					delete(blob);
+					count++;
+				} else if (liveRefs.size() != refs.size()) {
+					Files.write(refsFile, liveRefs);
+				}
+			}
+
+			if (count != 0)
+				logger.info("Deleted {} unused blobs from store {}", count, this.directory);
+			return count;
+		});
+	}
+
+	private static boolean isUsing(Path file, Path blob, String algorithm, String digest) {
+		try {
+			if (!Files.isRegularFile(file))
+				return false;
+			return Files.isSameFile(file, blob) || InstallMarker.matches(file, algorithm, digest);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void linkOrCopy(Path source, Path target) throws IOException {
+		try {
+			Files.createLink(target, source);
+		} catch (UnsupportedOperationException | IOException e) {
+			Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void delete(Path blob) throws IOException {
+		Files.deleteIfExists(blob);
+		InstallMarker.delete(blob);
+		Files.deleteIfExists(getReferencesFile(blob));
+	}
+
+	private static Path getTempFile(Path file) {
+		return file.resolveSibling(file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+	}
+
+	private static Path getReferencesFile(Path blob) {
+		return blob.resolveSibling(blob.getFileName() + ".refs");
+	}
+
+	private static void addReference(Path blob, Path file) throws IOException {
+		Path refsFile = getReferencesFile(blob);
+		String ref = file.toAbsolutePath().toString();
+
+		Set<String> refs = new LinkedHashSet<>();
+		if (Files.exists(refsFile))
+			refs.addAll(Files.readAllLines(refsFile));
+		if (refs.add(ref))
+			Files.write(refsFile, refs);
+	}
+
+	private <T> T locked(Action<T> action) throws IOException {
+		// File locks are held by the whole JVM, so threads of this JVM are serialized separately
+		synchronized (localLock) {
+			Files.createDirectories(this.directory);
+			try (FileChannel channel = FileChannel.open(this.directory.resolve("store.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				FileLock lock = channel.lock();
+				try {
+					return action.run();
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	private interface Action<T> {
+		T run() throws IOException;
+	}
+}
@@ -22,6 +22,7 @@
 
 package net.smoofyuniverse.common.download;
 
+import net.smoofyuniverse.common.app.ApplicationManager;
 import net.smoofyuniverse.common.logger.ApplicationLogger;
 import net.smoofyuniverse.common.task.IncrementalListenerProvider;
 import net.smoofyuniverse.common.util.IOUtil;
@@ -33,6 +34,9 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executor;
 
 /**
  * Information about a remote file.
@@ -40,6 +44,7 @@ import java.nio.file.Path;
  */
 public class FileInfo {
 	private static final Logger logger = ApplicationLogger.get(FileInfo.class);
+	private static final Logger failureLogger = ApplicationLogger.rateLimited(logger, 1, 5);
 
 	/**
 	 * The URL of the remote file.
@@ -118,6 +123,9 @@ public class FileInfo {
 
 	/**
 	 * Downloads the remote file to the target file.
+	 * See {@link #download(Path, ConnectionConfig, IncrementalListenerProvider, Executor)}.
+	 * Segments are fetched on the executor of the application.
+	 * Outside of an application, the file is downloaded over a single connection.
 	 *
 	 * @param file   The target file.
 	 * @param config The connection configuration.
@@ -125,15 +133,98 @@ public class FileInfo {
 	 * @return Whether the download has succeeded.
 	 */
 	public boolean download(Path file, ConnectionConfig config, IncrementalListenerProvider p) {
-		HttpURLConnection co;
+		return download(file, config, p, ApplicationManager.isAvailable() ? ApplicationManager.get().getExecutor() : null);
+	}
+
+	/**
+	 * Downloads the remote file to the target file.
+	 * <p>
+	 * If the size is known and the configuration allows it, the file is split into segments
+	 * fetched concurrently over several connections, provided the server supports range requests.
+	 * Otherwise, the file is downloaded over a single connection.
+	 * <p>
+	 * The file is downloaded to a sibling temporary file and its digest is computed while it is written.
+	 * The temporary file is flushed to the storage device and atomically moved to the target file only if its size and digest match.
+	 * A corrupted temporary file is deleted.
+	 * An installed file is marked so that {@link #matches(Path)} does not need to compute its digest again
+	 * as long as it is not modified.
+	 *
+	 * @param file     The target file.
+	 * @param config   The connection configuration.
+	 * @param p        A listener provider.
+	 * @param executor The executor fetching the segments, or null to download over a single connection.
+	 * @return Whether the download has succeeded and the file matches.
+	 */
+	public boolean download(Path file, ConnectionConfig config, IncrementalListenerProvider p, Executor executor) {
+		MessageDigest md = null;
+		if (this.digest != null && this.digestAlgorithm != null) {
+			try {
+				md = MessageDigest.getInstance(this.digestAlgorithm);
+			} catch (NoSuchAlgorithmException e) {
+				logger.warn("Unknown digest algorithm: {}", this.digestAlgorithm);
+				return false;
+			}
+		}
+
+		Path tempFile = IOUtil.getDownloadFile(file);
+		boolean downloaded = false;
+
+		int segments = executor == null ? 1 : SegmentedDownload.getSegmentCount(this.size, config);
+		// An interrupted single connection download is resumed instead
+		if (segments > 1 && !Files.exists(IOUtil.getPartialFile(tempFile))) {
+			SegmentedDownload.Result result = new SegmentedDownload(this, tempFile, config, segments).run(p, executor);
+			if (result == SegmentedDownload.Result.FAILURE)
+				return false;
+
+			if (result == SegmentedDownload.Result.SUCCESS) {
+				if (md != null) {
+					// Segments are written out of order so the digest is computed once the file is complete
+					try {
+						IOUtil.updateDigest(md, tempFile, config.bufferSize());
+					} catch (IOException e) {
+						logger.warn("Failed to check file {}", tempFile, e);
+						return false;
+					}
+				}
+				downloaded = true;
+			}
+		}
+
+		if (!downloaded) {
+			HttpURLConnection co;
+			try {
+				co = openDownloadConnection(config);
+			} catch (IOException e) {
+				failureLogger.warn("Failed to open connection to url {}.", url, e);
+				return false;
+			}
+
+			if (!IOUtil.download(co, tempFile, config.bufferSize(), p, md))
+				return false;
+		}
+
+		return install(tempFile, file, md);
+	}
+
+	private boolean install(Path tempFile, Path file, MessageDigest md) {
 		try {
-			co = openDownloadConnection(config);
+			if ((this.size != -1 && this.size != Files.size(tempFile))
+					|| (md != null && !this.digest.equals(StringUtil.toHexString(md.digest())))) {
+				logger.warn("The file downloaded from url {} has an incorrect signature.", this.url);
+				Files.deleteIfExists(tempFile);
+				Files.deleteIfExists(IOUtil.getPartialFile(tempFile));
+				return false;
+			}
+
+			InstallMarker.delete(file);
+			IOUtil.moveAtomically(tempFile, file);
+			if (md != null)
+				InstallMarker.write(file, this.digestAlgorithm, this.digest);
+			return true;
 		} catch (IOException e) {
-			logger.warn("Failed to open connection to url {}.", url, e);
+			logger.warn("Failed to install file {}", file, e);
 			return false;
 		}
-
-		return IOUtil.download(co, file, config.bufferSize(), p);
 	}
 
 	/**
@@ -160,22 +251,54 @@ public class FileInfo {
 
 	/**
 	 * Checks whether the local file matches the remote file.
+	 * The digest is not computed if the file was installed by a download and has not been modified since.
 	 *
 	 * @param file The local file.
 	 * @return Whether the local file matches the remote file.
 	 */
 	public boolean matches(Path file) {
+		return matches(file, null, false);
+	}
+
+	/**
+	 * Checks whether the local file matches the remote file.
+	 * The digest is not computed if the file was installed by a download or recorded in the index and has not been modified since,
+	 * unless the check is forced.
+	 * The result is recorded in the index.
+	 *
+	 * @param file  The local file.
+	 * @param index The verification index, or null.
+	 * @param force Whether the digest must be computed.
+	 * @return Whether the local file matches the remote file.
+	 */
+	public boolean matches(Path file, VerificationIndex index, boolean force) {
 		try {
-			if (!Files.isRegularFile(file))
+			if (!Files.isRegularFile(file) || (this.size != -1 && this.size != Files.size(file))) {
+				if (index != null)
+					index.remove(file);
 				return false;
+			}
 
-			if (this.size != -1 && this.size != Files.size(file))
-				return false;
+			if (this.digest == null || this.digestAlgorithm == null)
+				return true;
+
+			if (!force && ((index != null && index.matches(file, this.digestAlgorithm, this.digest))
+					|| InstallMarker.matches(file, this.digestAlgorithm, this.digest))) {
+				if (index != null)
+					index.put(file, this.digestAlgorithm, this.digest);
+				return true;
+			}
 
-			if (this.digest != null && this.digestAlgorithm != null && !this.digest.equals(StringUtil.toHexString(IOUtil.digest(file, this.digestAlgorithm))))
+			if (!this.digest.equals(StringUtil.toHexString(IOUtil.digest(file, this.digestAlgorithm)))) {
+				if (index != null)
+					index.remove(file);
 				return false;
+			}
+
+			if (index != null)
+				index.put(file, this.digestAlgorithm, this.digest);
 		} catch (Exception e) {
-			logger.warn("Failed to check file {}", file, e);
+			failureLogger.warn("Failed to check file {}", file, e);
 			return false;
 		}
 		return true;
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.download;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A sidecar file recording the digest of a file verified and installed atomically,
+ * along with the size and modification time of the file at installation.
+ * As long as the file has the same size and modification time, its digest can be trusted without reading the file.
+ */
+final class InstallMarker {
+
+	private InstallMarker() {}
+
+	/**
+	 * Gets the marker file of the file.
+	 *
+	 * @param file The file.
+	 * @return The marker file.
+	 */
+	static Path of(Path file) {
+		return file.resolveSibling(file.getFileName() + ".verified");
+	}
+
+	/**
+	 * Writes the marker of the installed file.
+	 *
+	 * @param file      The file.
+	 * @param algorithm The digest algorithm.
+	 * @param digest    The hexadecimal representation of the digest.
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	static void write(Path file, String algorithm, String digest) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		Files.writeString(of(file), algorithm + "\n" + digest + "\n" + attrs.size() + "\n" + attrs.lastModifiedTime().toMillis());
+	}
+
+	/**
+	 * Deletes the marker of the file.
+	 *
+	 * @param file The file.
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	static void delete(Path file) throws IOException {
+		Files.deleteIfExists(of(file));
+	}
+
+	/**
+	 * Checks whether the file has a marker with the same digest and has not changed since.
+	 *
+	 * @param file      The file.
+	 * @param algorithm The digest algorithm.
+	 * @param digest    The hexadecimal representation of the digest.
+	 * @return Whether the digest of the file can be trusted.
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	static boolean matches(Path file, String algorithm, String digest) throws IOException {
+		String[] lines;
+		try {
+			lines = Files.readString(of(file)).split("\n");
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		if (lines.length != 4 || !lines[0].equalsIgnoreCase(algorithm) || !lines[1].equalsIgnoreCase(digest))
+			return false;
+
+		BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		try {
+			return attrs.size() == Long.parseLong(lines[2]) && attrs.lastModifiedTime().toMillis() == Long.parseLong(lines[3]);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+}
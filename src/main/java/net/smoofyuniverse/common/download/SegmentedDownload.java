@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.download;
+
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.common.task.IncrementalListener;
+import net.smoofyuniverse.common.task.IncrementalListenerProvider;
+import net.smoofyuniverse.common.util.IOUtil;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A download of a file of known size split into ranges fetched concurrently over several connections.
+ * Each range is written at its own offset in the target file.
+ */
+final class SegmentedDownload {
+	private static final Logger logger = ApplicationLogger.get(SegmentedDownload.class);
+	private static final Logger failureLogger = ApplicationLogger.rateLimited(logger, 1, 5);
+
+	/**
+	 * The minimum size of a segment.
+	 * Smaller files are split into fewer segments.
+	 */
+	static final long MIN_SEGMENT_SIZE = 1 << 20;
+
+	private final FileInfo info;
+	private final Path file;
+	private final ConnectionConfig config;
+	private final int segments;
+	private final long segmentSize;
+
+	private final AtomicInteger nextSegment = new AtomicInteger(1);
+	private IncrementalListener listener;
+	private FileChannel channel;
+	private String validator;
+	private volatile boolean failed;
+
+	SegmentedDownload(FileInfo info, Path file, ConnectionConfig config, int segments) {
+		this.info = info;
+		this.file = file;
+		this.config = config;
+		this.segments = segments;
+		this.segmentSize = info.size / segments;
+	}
+
+	/**
+	 * Gets the number of segments a file should be split into.
+	 *
+	 * @param size   The size of the file.
+	 * @param config The connection configuration.
+	 * @return The number of segments.
+	 */
+	static int getSegmentCount(long size, ConnectionConfig config) {
+		if (size <= 0)
+			return 1;
+		return (int) Math.max(1, Math.min(config.segments(), size / MIN_SEGMENT_SIZE));
+	}
+
+	/**
+	 * Runs the download.
+	 * The calling thread downloads the first segment, then helps the workers with the remaining segments.
+	 *
+	 * @param p        A listener provider.
+	 * @param executor The executor running the workers.
+	 * @return The result.
+	 */
+	Result run(IncrementalListenerProvider p, Executor executor) {
+		HttpURLConnection co;
+		try {
+			co = open(0);
+			co.connect();
+			int code = co.getResponseCode();
+			if (code == HttpURLConnection.HTTP_OK) {
+				co.disconnect();
+				return Result.UNSUPPORTED;
+			}
+			if (code != HttpURLConnection.HTTP_PARTIAL || IOUtil.getRangeStart(co) != 0) {
+				failureLogger.info("Server at url {} returned a bad response code: {}", this.info.url, code);
+				co.disconnect();
+				return Result.FAILURE;
+			}
+		} catch (IOException e) {
+			failureLogger.warn("Failed to open connection to url {}.", this.info.url, e);
+			return Result.FAILURE;
+		}
+		this.validator = IOUtil.getValidator(co);
+
+		logger.info("Downloading from url {} to file {} in {} segments ...", this.info.url, this.file, this.segments);
+		long time = System.currentTimeMillis();
+
+		this.listener = p.expect(this.info.size);
+		// The file is replaced rather than truncated, in case it is a link to another file
+		try (FileChannel channel = create(this.file)) {
+			this.channel = channel;
+
+			int workers = Math.min(this.config.segmentConcurrency(), this.segments) - 1;
+			CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+			for (int i = 0; i < workers; i++)
+				futures[i] = CompletableFuture.runAsync(this::work, executor);
+
+			try {
+				transfer(co, 0);
+			} catch (IOException e) {
+				fail(e);
+			}
+			work();
+
+			CompletableFuture.allOf(futures).join();
+		} catch (IOException e) {
+			co.disconnect();
+			fail(e);
+		}
+
+		if (this.listener.isCancelled()) {
+			logger.debug("Download cancelled ({}s).", (System.currentTimeMillis() - time) / 1000F);
+			return Result.FAILURE;
+		}
+		if (this.failed)
+			return Result.FAILURE;
+
+		logger.debug("Download ended ({}s).", (System.currentTimeMillis() - time) / 1000F);
+		return Result.SUCCESS;
+	}
+
+	private static FileChannel create(Path file) throws IOException {
+		Files.deleteIfExists(file);
+		return FileChannel.open(file, CREATE_NEW, WRITE);
+	}
+
+	private void work() {
+		int i;
+		while (!this.failed && !this.listener.isCancelled() && (i = this.nextSegment.getAndIncrement()) < this.segments) {
+			try {
+				HttpURLConnection co = open(i);
+				co.connect();
+				if (co.getResponseCode() != HttpURLConnection.HTTP_PARTIAL || IOUtil.getRangeStart(co) != start(i)) {
+					co.disconnect();
+					throw new IOException("Server returned an unexpected response for segment " + i + ", the content might have changed");
+				}
+				transfer(co, i);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private void fail(IOException e) {
+		if (!this.failed) {
+			this.failed = true;
+			failureLogger.warn("Download from url {} failed.", this.info.url, e);
+		}
+	}
+
+	private long start(int segment) {
+		return segment * this.segmentSize;
+	}
+
+	private long end(int segment) {
+		return segment == this.segments - 1 ? this.info.size : (segment + 1) * this.segmentSize;
+	}
+
+	private HttpURLConnection open(int segment) throws IOException {
+		HttpURLConnection co = this.info.openDownloadConnection(this.config);
+		co.setRequestProperty("Range", "bytes=" + start(segment) + "-" + (end(segment) - 1));
+		if (segment != 0 && this.validator != null)
+			co.setRequestProperty("If-Range", this.validator);
+		return co;
+	}
+
+	private void transfer(HttpURLConnection co, int segment) throws IOException {
+		long position = start(segment), end = end(segment);
+		byte[] array = new byte[this.config.bufferSize()];
+		ByteBuffer buffer = ByteBuffer.wrap(array);
+
+		try (InputStream in = co.getInputStream()) {
+			int length;
+			while (position < end && (length = in.read(array, 0, (int) Math.min(array.length, end - position))) != -1) {
+				if (this.failed || this.listener.isCancelled())
+					return;
+
+				buffer.limit(length).position(0);
+				while (buffer.hasRemaining())
+					position += this.channel.write(buffer, position);
+				this.listener.increment(length);
+			}
+		} finally {
+			co.disconnect();
+		}
+
+		if (position != end)
+			throw new IOException("Segment " + segment + " ended after " + (position - start(segment)) + " of " + (end - start(segment)) + " bytes");
+	}
+
+	enum Result {
+		SUCCESS, FAILURE, UNSUPPORTED
+	}
+}
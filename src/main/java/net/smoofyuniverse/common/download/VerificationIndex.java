@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.download;
+
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.common.util.IOUtil;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An on-disk index of verified files.
+ * Each entry records the size, modification time and file key of a file at the time its digest was verified.
+ * As long as the file has the same metadata, its digest can be trusted without reading the file.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class VerificationIndex {
+	private static final Logger logger = ApplicationLogger.get(VerificationIndex.class);
+
+	/**
+	 * The file where this index is saved.
+	 */
+	public final Path file;
+
+	private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+	private volatile boolean modified;
+
+	/**
+	 * Creates an empty index.
+	 *
+	 * @param file The file where this index is saved.
+	 */
+	public VerificationIndex(Path file) {
+		if (file == null)
+			throw new IllegalArgumentException("file");
+		this.file = file;
+	}
+
+	/**
+	 * Checks whether the file has been verified with the same digest and has not changed since.
+	 *
+	 * @param file      The file.
+	 * @param algorithm The digest algorithm.
+	 * @param digest    The hexadecimal representation of the digest.
+	 * @return Whether the digest of the file can be trusted.
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	public boolean matches(Path file, String algorithm, String digest) throws IOException {
+		Entry e = this.entries.get(normalize(file));
+		if (e == null || !e.algorithm.equalsIgnoreCase(algorithm) || !e.digest.equalsIgnoreCase(digest))
+			return false;
+
+		BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		return attrs.size() == e.size && attrs.lastModifiedTime().toMillis() == e.lastModified && getKey(attrs).equals(e.key);
+	}
+
+	/**
+	 * Records that the digest of the file has been verified.
+	 *
+	 * @param file      The file.
+	 * @param algorithm The digest algorithm.
+	 * @param digest    The hexadecimal representation of the digest.
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	public void put(Path file, String algorithm, String digest) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		Entry e = new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), getKey(attrs), algorithm, digest);
+		if (!e.equals(this.entries.put(normalize(file), e)))
+			this.modified = true;
+	}
+
+	/**
+	 * Removes the file from this index.
+	 *
+	 * @param file The file.
+	 */
+	public void remove(Path file) {
+		if (this.entries.remove(normalize(file)) != null)
+			this.modified = true;
+	}
+
+	/**
+	 * Removes all files from this index except the given files.
+	 *
+	 * @param files The files to keep.
+	 */
+	public void retain(Collection<Path> files) {
+		Set<Path> set = new HashSet<>();
+		for (Path file : files)
+			set.add(normalize(file));
+		if (this.entries.keySet().retainAll(set))
+			this.modified = true;
+	}
+
+	/**
+	 * Loads the entries from the file.
+	 * Malformed entries are ignored.
+	 *
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	public void load() throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(this.file)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", 6);
+				if (fields.length != 6)
+					continue;
+
+				try {
+					this.entries.put(normalize(Paths.get(fields[5])), new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2], fields[3], fields[4]));
+				} catch (Exception ignored) {
+				}
+			}
+		} catch (NoSuchFileException ignored) {
+		}
+	}
+
+	/**
+	 * Saves the entries to the file if they have been modified since this index was loaded or last saved.
+	 * If saving fails, the entries are saved again by the next call.
+	 * The file is replaced atomically.
+	 *
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	public synchronized void save() throws IOException {
+		if (!this.modified)
+			return;
+		// Cleared before writing so that entries modified meanwhile are saved next time
+		this.modified = false;
+
+		try {
+			Files.createDirectories(this.file.toAbsolutePath().getParent());
+			Path tempFile = IOUtil.getDownloadFile(this.file);
+			try (BufferedWriter writer = Files.newBufferedWriter(tempFile)) {
+				for (Map.Entry<Path, Entry> e : this.entries.entrySet()) {
+					Entry v = e.getValue();
+					writer.write(v.size + "\t" + v.lastModified + "\t" + v.key + "\t" + v.algorithm + "\t" + v.digest + "\t" + e.getKey());
+					writer.newLine();
+				}
+			}
+			IOUtil.moveAtomically(tempFile, this.file);
+		} catch (IOException | RuntimeException e) {
+			this.modified = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates an index and loads its entries from the file.
+	 * An index that cannot be loaded is considered empty.
+	 *
+	 * @param file The file where the index is saved.
+	 * @return The index.
+	 */
+	public static VerificationIndex load(Path file) {
+		VerificationIndex index = new VerificationIndex(file);
+		try {
+			index.load();
+		} catch (IOException e) {
+			logger.warn("Failed to load verification index {}", file, e);
+		}
+		return index;
+	}
+
+	private static Path normalize(Path file) {
+		return file.toAbsolutePath().normalize();
+	}
+
+	private static String getKey(BasicFileAttributes attrs) {
+		Object key = attrs.fileKey();
+		return key == null ? "-" : key.toString().replace('\t', ' ');
+	}
+
+	private record Entry(long size, long lastModified, String key, String algorithm, String digest) {}
+}
@@ -113,12 +113,12 @@ public class ApplicationUpdater {
 			Path updaterJar = this.app.getDirectory().resolve("Updater.jar");
 			if (!this.latestUpdater.matches(updaterJar)) {
 				logger.info("Downloading latest updater ...");
-				this.latestUpdater.download(updaterJar, this.app.getConnectionConfig(), task);
+				boolean downloaded = this.latestUpdater.download(updaterJar, this.app.getConnectionConfig(), task);
 
 				if (task.isCancelled())
 					return;
 
-				if (!this.latestUpdater.matches(updaterJar)) {
+				if (!downloaded) {
 					task.cancel();
 					logger.error("Updater file seems invalid, aborting ...");
 					Popup.error().title(t("update.cancelled")).message(t("update.signature.invalid.updater")).show();
@@ -131,12 +131,12 @@ public class ApplicationUpdater {
 			Path appUpdateJar = this.app.getDirectory().resolve(this.app.getName() + "-Update.jar");
 			if (!this.latestApp.matches(appUpdateJar)) {
 				logger.info("Downloading latest application update ...");
-				this.latestApp.download(appUpdateJar, this.app.getConnectionConfig(), task);
+				boolean downloaded = this.latestApp.download(appUpdateJar, this.app.getConnectionConfig(), task);
 
 				if (task.isCancelled())
 					return;
 
-				if (!this.latestApp.matches(appUpdateJar)) {
+				if (!downloaded) {
 					task.cancel();
 					logger.error("Application update file seems invalid, aborting ...");
 					Popup.error().title(t("update.cancelled")).message(t("update.signature.invalid.app")).show();
@@ -24,6 +24,9 @@ package net.smoofyuniverse.common.environment;
 
 import net.smoofyuniverse.common.Main;
 import net.smoofyuniverse.common.app.ApplicationManager;
+import net.smoofyuniverse.common.download.ConnectionConfig;
+import net.smoofyuniverse.common.download.ContentStore;
+import net.smoofyuniverse.common.download.VerificationIndex;
 import net.smoofyuniverse.common.logger.ApplicationLogger;
 import net.smoofyuniverse.common.task.IncrementalListener;
 import net.smoofyuniverse.common.task.impl.SimpleIncrementalListener;
@@ -32,10 +35,15 @@ import org.slf4j.Logger;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.jar.JarFile;
 
 /**
@@ -81,6 +89,11 @@ public class DependencyManager {
 
 	/**
 	 * Updates the dependencies.
+	 * Dependencies are checked concurrently.
+	 * Verified dependencies are recorded in an index so that their digest is not computed again while they are not modified.
+	 * Files which are no longer dependencies are removed from the index.
+	 * The argument {@code verifyDependencies} forces the digest of all dependencies to be computed.
+	 * Missing dependencies are installed from the shared content store when possible, and downloaded otherwise.
 	 *
 	 * @param defaultDir The default directory where dependencies will be saved.
 	 * @return Whether all dependencies have been updated.
@@ -89,25 +102,55 @@ public class DependencyManager {
 		if (this.dependencies.isEmpty())
 			return true;
 
-		List<DependencyInfo> deps = new LinkedList<>(this.dependencies);
+		ContentStore store = this.app.getContentStore().orElse(null);
+		VerificationIndex index = VerificationIndex.load(defaultDir.resolve("verification.index"));
+		boolean force = this.app.getArguments().getBoolean("verifyDependencies");
 
-		long totalSize = 0;
-		Iterator<DependencyInfo> it = deps.iterator();
-		while (it.hasNext()) {
-			DependencyInfo info = it.next();
+		// Dependencies are checked concurrently, the largest first, but results are merged in the original order
+		List<DependencyInfo> all = new ArrayList<>(this.dependencies);
+		boolean[] missing = new boolean[all.size()];
+		Integer[] order = new Integer[all.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, Comparator.comparingLong((Integer i) -> all.get(i).size).reversed());
 
-			if (!info.isCompatible()) {
-				it.remove();
-				continue;
+		AtomicInteger next = new AtomicInteger();
+		Runnable worker = () -> {
+			int i;
+			while ((i = next.getAndIncrement()) < order.length) {
+				int k = order[i];
+				missing[k] = isMissing(all.get(k), defaultDir, index, force, store);
 			}
+		};
 
-			if (info.file == null)
-				info.file = IOUtil.getMavenPath(defaultDir, info.name, ".jar");
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[Math.min(Runtime.getRuntime().availableProcessors(), all.size()) - 1];
+		for (int i = 0; i < futures.length; i++)
+			futures[i] = CompletableFuture.runAsync(worker, this.app.getExecutor());
+		worker.run();
+		CompletableFuture.allOf(futures).join();
 
-			if (info.matches())
-				it.remove();
-			else
+		List<DependencyInfo> deps = new LinkedList<>();
+		long totalSize = 0;
+		for (int i = 0; i < missing.length; i++) {
+			if (missing[i]) {
+				DependencyInfo info = all.get(i);
+				deps.add(info);
 				totalSize += info.size;
+			}
+		}
+
+		// Entries of files which are no longer dependencies are pruned
+		List<Path> files = new ArrayList<>();
+		for (DependencyInfo info : all) {
+			if (info.file != null)
+				files.add(info.file);
+		}
+		index.retain(files);
+
+		try {
+			index.save();
+		} catch (IOException e) {
+			logger.warn("Failed to save verification index {}", index.file, e);
 		}
 
 		if (deps.isEmpty())
@@ -115,6 +158,9 @@ public class DependencyManager {
 
 		download(deps, totalSize);
 
+		if (store != null)
+			collectGarbage(store);
+
 		if (deps.isEmpty())
 			return true;
 
@@ -122,6 +168,16 @@ public class DependencyManager {
 		return false;
 	}
 
+	private boolean isMissing(DependencyInfo info, Path defaultDir, VerificationIndex index, boolean force, ContentStore store) {
+		if (!info.isCompatible())
+			return false;
+
+		if (info.file == null)
+			info.file = IOUtil.getMavenPath(defaultDir, info.name, ".jar");
+
+		return !info.matches(info.file, index, force) && (store == null || !store.install(info, info.file));
+	}
+
 	protected void download(List<DependencyInfo> deps, long totalSize) {
 		JLabel label = new JLabel();
 		JOptionPane pane = new JOptionPane(label, JOptionPane.INFORMATION_MESSAGE);
@@ -134,25 +190,78 @@ public class DependencyManager {
 		dialog.setLocationRelativeTo(null);
 
 		logger.info("Downloading missing dependencies ...");
-		IncrementalListener listener = new SimpleIncrementalListener(0);
-
-		Iterator<DependencyInfo> it = deps.iterator();
-		while (it.hasNext()) {
-			DependencyInfo dep = it.next();
-			logger.info("Downloading dependency {} ...", dep.name);
+		downloadAll(deps, new SimpleIncrementalListener(0), dep -> SwingUtilities.invokeLater(() -> {
 			label.setText(dep.name);
 			dialog.pack();
+		}));
 
-			if (!dep.createParent() || !dep.download(this.app.getConnectionConfig(), listener))
-				continue;
+		dialog.dispose();
+	}
 
-			if (dep.matches())
-				it.remove();
-			else
-				logger.warn("The downloaded dependency has an incorrect signature.");
-		}
+	/**
+	 * Downloads and verifies the dependencies, up to {@link #getDownloadConcurrency()} at the same time.
+	 * The largest dependencies are downloaded first.
+	 * Each dependency is verified while it is downloaded and only installed if it matches.
+	 * Dependencies successfully downloaded are added to the shared content store and removed from the list.
+	 * No download is started once the listener is cancelled.
+	 *
+	 * @param deps     The dependencies.
+	 * @param listener The listener incremented by all downloads.
+	 * @param started  An action called from the downloading thread when the download of a dependency starts.
+	 */
+	protected void downloadAll(List<DependencyInfo> deps, IncrementalListener listener, Consumer<DependencyInfo> started) {
+		ConnectionConfig config = this.app.getConnectionConfig();
+		ContentStore store = this.app.getContentStore().orElse(null);
+		Queue<DependencyInfo> queue = new PriorityQueue<>(Comparator.comparingLong((DependencyInfo dep) -> dep.size).reversed());
+		queue.addAll(deps);
+		Set<DependencyInfo> downloaded = ConcurrentHashMap.newKeySet();
 
-		dialog.dispose();
+		Runnable worker = () -> {
+			while (!listener.isCancelled()) {
+				DependencyInfo dep;
+				synchronized (queue) {
+					dep = queue.poll();
+				}
+				if (dep == null)
+					return;
+
+				logger.info("Downloading dependency {} ...", dep.name);
+				started.accept(dep);
+
+				if (dep.createParent() && dep.download(config, listener) && !listener.isCancelled()) {
+					downloaded.add(dep);
+					if (store != null)
+						store.add(dep, dep.file);
+				}
+			}
+		};
+
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[Math.min(getDownloadConcurrency(), deps.size()) - 1];
+		for (int i = 0; i < futures.length; i++)
+			futures[i] = CompletableFuture.runAsync(worker, this.app.getExecutor());
+		worker.run();
+		CompletableFuture.allOf(futures).join();
+
+		deps.removeIf(downloaded::contains);
+	}
+
+	/**
+	 * Gets the maximum number of dependencies downloaded at the same time.
+	 *
+	 * @return The maximum number of concurrent downloads.
+	 */
+	protected int getDownloadConcurrency() {
+		return Math.max(1, this.app.getArguments().getInt("dependencyConcurrency").orElse(4));
+	}
+
+	private void collectGarbage(ContentStore store) {
+		this.app.getExecutor().execute(() -> {
+			try {
+				store.collectGarbage();
+			} catch (Exception e) {
+				logger.debug("Failed to collect garbage of content store", e);
+			}
+		});
 	}
 
 	protected void failed(List<DependencyInfo> deps) {}
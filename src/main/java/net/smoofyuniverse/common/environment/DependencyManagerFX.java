@@ -24,11 +24,9 @@ package net.smoofyuniverse.common.environment;
 
 import net.smoofyuniverse.common.app.ApplicationManager;
 import net.smoofyuniverse.common.fx.dialog.Popup;
-import net.smoofyuniverse.common.task.IncrementalListener;
 import net.smoofyuniverse.common.task.ProgressTask;
 
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -45,28 +43,7 @@ public class DependencyManagerFX extends DependencyManager {
 		Consumer<ProgressTask> consumer = task -> {
 			logger.info("Downloading missing dependencies ...");
             task.setTitle(t("dependencies.download.title"));
-			IncrementalListener listener = task.expect(totalSize);
-
-			Iterator<DependencyInfo> it = deps.iterator();
-			while (it.hasNext()) {
-				if (task.isCancelled())
-					return;
-
-				DependencyInfo dep = it.next();
-				logger.info("Downloading dependency {} ...", dep.name);
-				task.setMessage(dep.name);
-
-				if (!dep.createParent() || !dep.download(this.app.getConnectionConfig(), listener))
-					continue;
-
-				if (task.isCancelled())
-					return;
-
-				if (dep.matches())
-					it.remove();
-				else
-					logger.warn("The downloaded dependency has an incorrect signature.");
-			}
+			downloadAll(deps, task.expect(totalSize), dep -> task.setMessage(dep.name));
 		};
 
         Popup.consumer(consumer).title(t("dependencies.update.title")).submitAndWait();
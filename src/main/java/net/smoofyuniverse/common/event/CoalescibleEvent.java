@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.event;
+
+import net.smoofyuniverse.common.app.ApplicationManager;
+
+/**
+ * An event that might be fired at high frequency and for which only the latest value matters.
+ * See {@link EventManager#postEventCoalesced(CoalescibleEvent)}.
+ */
+public interface CoalescibleEvent extends Event {
+
+	/**
+	 * Gets the key used to merge pending events.
+	 * A pending event is replaced by any newer event with an equal key.
+	 * Defaults to the event class.
+	 *
+	 * @return The key.
+	 */
+	default Object getCoalescingKey() {
+		return getClass();
+	}
+
+	/**
+	 * Posts this event in {@link ApplicationManager}'s event manager.
+	 * This event will be merged with other pending events having the same key.
+	 */
+	default void postCoalesced() {
+		ApplicationManager.get().getEventManager().postEventCoalesced(this);
+	}
+}
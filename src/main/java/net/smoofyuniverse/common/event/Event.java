@@ -24,6 +24,8 @@ package net.smoofyuniverse.common.event;
 
 import net.smoofyuniverse.common.app.ApplicationManager;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * An event that can be posted in a {@link EventManager}.
  */
@@ -44,4 +46,13 @@ public interface Event {
 	default boolean post() {
 		return ApplicationManager.get().getEventManager().postEvent(this);
 	}
+
+	/**
+	 * Posts asynchronously this event in {@link ApplicationManager}'s event manager.
+	 *
+	 * @return A future completed with whether this event hasn't been cancelled.
+	 */
+	default CompletableFuture<Boolean> postAsync() {
+		return ApplicationManager.get().getEventManager().postEventAsync(this);
+	}
 }
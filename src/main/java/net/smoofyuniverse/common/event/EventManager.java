@@ -26,15 +26,49 @@ import net.smoofyuniverse.common.logger.ApplicationLogger;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Holds a set of {@link ListenerRegistration}s.
  * Posts {@link Event}s.
+ * This class is thread-safe: listeners can be registered, unregistered and events posted concurrently without locking.
  */
 public class EventManager {
 	private static final Logger logger = ApplicationLogger.get(EventManager.class);
 
-	private final Set<ListenerRegistration<?>> listeners = Collections.newSetFromMap(new IdentityHashMap<>());
+	private static final ListenerRegistration<?>[] NO_LISTENERS = new ListenerRegistration<?>[0];
+
+	/**
+	 * The type itself, its superclasses and all implemented interfaces.
+	 * Computed once per type by reusing the values of the direct supertypes.
+	 */
+	private static final ClassValue<Class<?>[]> supertypes = new ClassValue<>() {
+		@Override
+		protected Class<?>[] computeValue(Class<?> type) {
+			Set<Class<?>> set = new LinkedHashSet<>();
+			set.add(type);
+			if (type.getSuperclass() != null)
+				Collections.addAll(set, get(type.getSuperclass()));
+			for (Class<?> i : type.getInterfaces())
+				Collections.addAll(set, get(i));
+			return set.toArray(new Class<?>[0]);
+		}
+	};
+
+	/**
+	 * The default interval between two flushes of coalesced events, in milliseconds.
+	 */
+	public static final long DEFAULT_FLUSH_INTERVAL = 50;
+
+	private final AtomicReference<Registry> registry = new AtomicReference<>(Registry.EMPTY);
+
+	private final Map<Object, CoalescibleEvent> pendingEvents = new ConcurrentHashMap<>();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final Object flushLock = new Object();
+	private volatile Executor flushExecutor = CompletableFuture.delayedExecutor(DEFAULT_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	private volatile EventMetrics metrics;
 
 	/**
 	 * Registers the {@link ListenerRegistration}.
@@ -46,7 +80,32 @@ public class EventManager {
 	public boolean register(ListenerRegistration<?> listener) {
 		if (listener == null)
 			throw new IllegalArgumentException("listener");
-		return this.listeners.add(listener);
+
+		while (true) {
+			Registry r = this.registry.get();
+			if (r.contains(listener))
+				return false;
+			if (this.registry.compareAndSet(r, r.with(listener)))
+				return true;
+		}
+	}
+
+	/**
+	 * Registers all methods annotated with {@link Listener} in the holder's class and its superclasses.
+	 * Each method is bound to a generated {@link EventListener} that invokes it directly.
+	 * The listeners will receive events from this manager.
+	 *
+	 * @param holder The object holding the listener methods.
+	 * @return The new registrations.
+	 */
+	public List<ListenerRegistration<?>> register(Object holder) {
+		if (holder == null)
+			throw new IllegalArgumentException("holder");
+
+		List<ListenerRegistration<?>> list = ListenerBinder.bind(holder);
+		for (ListenerRegistration<?> l : list)
+			register(l);
+		return list;
 	}
 
 	/**
@@ -59,7 +118,19 @@ public class EventManager {
 	public boolean unregister(ListenerRegistration<?> listener) {
 		if (listener == null)
 			throw new IllegalArgumentException("listener");
-		return this.listeners.remove(listener);
+
+		while (true) {
+			Registry r = this.registry.get();
+			Registry newRegistry = r.without(listener);
+			if (newRegistry == null)
+				return false;
+			if (this.registry.compareAndSet(r, newRegistry)) {
+				EventMetrics metrics = this.metrics;
+				if (metrics != null)
+					metrics.remove(listener);
+				return true;
+			}
+		}
 	}
 
 	/**
@@ -71,12 +142,13 @@ public class EventManager {
 	public boolean isRegistered(ListenerRegistration<?> listener) {
 		if (listener == null)
 			throw new IllegalArgumentException("listener");
-		return this.listeners.contains(listener);
+		return this.registry.get().contains(listener);
 	}
 
 	/**
 	 * Posts the event.
 	 * This event will be handled by all corresponding listeners in the correct order.
+	 * All listeners are executed on the current thread.
 	 *
 	 * @param event The event.
 	 * @return Whether the event hasn't been cancelled.
@@ -85,25 +157,150 @@ public class EventManager {
 		if (event == null)
 			throw new IllegalArgumentException("event");
 
-		List<ListenerRegistration<?>> listeners = getListeners(event.getClass());
-		Collections.sort(listeners);
+		ListenerRegistration<?>[] table = getDispatchTable(event.getClass());
+		handle(event, table, 0, table.length);
+		return !event.isCancelled();
+	}
+
+	/**
+	 * Posts asynchronously the event.
+	 * This event will be handled by all corresponding listeners in the correct order.
+	 * Consecutive listeners sharing the same {@link ListenerRegistration#executor} are executed as one segment on this executor.
+	 * A segment starts only after the previous one has completed.
+	 * Listeners without executor are executed on the thread that completed the previous segment, or on the current thread.
+	 *
+	 * @param event The event.
+	 * @return A future completed with whether the event hasn't been cancelled.
+	 */
+	public CompletableFuture<Boolean> postEventAsync(Event event) {
+		if (event == null)
+			throw new IllegalArgumentException("event");
+
+		ListenerRegistration<?>[] table = getDispatchTable(event.getClass());
+		CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+
+		int start = 0;
+		while (start < table.length) {
+			Executor executor = table[start].executor;
+			int end = start + 1;
+			while (end < table.length && table[end].executor == executor)
+				end++;
+
+			int segmentStart = start, segmentEnd = end;
+			Runnable segment = () -> handle(event, table, segmentStart, segmentEnd);
+			future = executor == null ? future.thenRun(segment) : future.thenRunAsync(segment, executor);
+			start = end;
+		}
+
+		return future.thenApply(v -> !event.isCancelled());
+	}
+
+	/**
+	 * Posts the event later.
+	 * The event is kept pending until the next flush and replaces any pending event with the same key.
+	 * Only the latest event for each key is handled by listeners.
+	 * The order of events with different keys is not preserved.
+	 * See {@link #setFlushExecutor(Executor)}.
+	 *
+	 * @param event The event.
+	 */
+	public void postEventCoalesced(CoalescibleEvent event) {
+		if (event == null)
+			throw new IllegalArgumentException("event");
+
+		this.pendingEvents.put(event.getCoalescingKey(), event);
 
-		for (ListenerRegistration l : listeners) {
+		if (this.flushScheduled.compareAndSet(false, true)) {
+			try {
+				this.flushExecutor.execute(this::flushEvents);
+			} catch (RuntimeException e) {
+				// eg Platform::runLater throws IllegalStateException once the toolkit has exited
+				this.flushScheduled.set(false);
+				logger.warn("Failed to schedule flush of coalesced events", e);
+			}
+		}
+	}
+
+	/**
+	 * Posts immediately all pending coalesced events on the current thread.
+	 * Concurrent flushes are serialized so that an event is never handled after a newer event with the same key.
+	 */
+	public void flushEvents() {
+		synchronized (this.flushLock) {
+			this.flushScheduled.set(false);
+
+			for (Object key : this.pendingEvents.keySet()) {
+				CoalescibleEvent event = this.pendingEvents.remove(key);
+				if (event != null)
+					postEvent(event);
+			}
+		}
+	}
+
+	/**
+	 * Gets the executor used to flush coalesced events.
+	 *
+	 * @return The executor.
+	 */
+	public Executor getFlushExecutor() {
+		return this.flushExecutor;
+	}
+
+	/**
+	 * Sets the executor used to flush coalesced events.
+	 * The executor determines both the thread and the rate of flushes.
+	 * By default, events are flushed every {@link #DEFAULT_FLUSH_INTERVAL} milliseconds on a background thread.
+	 * Using {@code Platform::runLater} flushes events once per JavaFX event loop iteration on the JavaFX thread.
+	 *
+	 * @param executor The executor.
+	 */
+	public void setFlushExecutor(Executor executor) {
+		if (executor == null)
+			throw new IllegalArgumentException("executor");
+		this.flushExecutor = executor;
+	}
+
+	/**
+	 * Gets the metrics recording listener invocations.
+	 *
+	 * @return The metrics.
+	 */
+	public Optional<EventMetrics> getMetrics() {
+		return Optional.ofNullable(this.metrics);
+	}
+
+	/**
+	 * Sets the metrics recording listener invocations.
+	 * Null disables the recording.
+	 *
+	 * @param metrics The metrics.
+	 */
+	public void setMetrics(EventMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	private void handle(Event event, ListenerRegistration<?>[] table, int start, int end) {
+		EventMetrics metrics = this.metrics;
+
+		for (int i = start; i < end; i++) {
+			ListenerRegistration l = table[i];
 			if (event.isCancelled() && l.ignoreCancelled)
 				continue;
 
 			try {
-				l.listener.handle(event);
+				if (metrics == null)
+					l.listener.handle(event);
+				else
+					metrics.handle(this, l, event);
 			} catch (Exception e) {
 				logger.error("Failed to handle event {}", event.getClass().getSimpleName(), e);
 			}
 		}
-
-		return !event.isCancelled();
 	}
 
 	/**
 	 * Gets all registered listeners for the given event type.
+	 * Listeners are sorted in the order of execution.
 	 *
 	 * @param eventType The event type.
 	 * @return A list of listeners.
@@ -111,12 +308,132 @@ public class EventManager {
 	public List<ListenerRegistration<?>> getListeners(Class<?> eventType) {
 		if (eventType == null)
 			throw new IllegalArgumentException("eventType");
+		return new ArrayList<>(Arrays.asList(getDispatchTable(eventType)));
+	}
 
-		List<ListenerRegistration<?>> list = new ArrayList<>();
-		for (ListenerRegistration<?> l : this.listeners) {
-			if (l.eventType.isAssignableFrom(eventType))
-				list.add(l);
+	/**
+	 * Creates a new scope.
+	 * All listeners registered through the scope are unregistered when the scope is closed.
+	 *
+	 * @return The new scope.
+	 */
+	public ListenerScope newScope() {
+		return new ListenerScope(this);
+	}
+
+	/**
+	 * Gets the sorted array of listeners for the given event type.
+	 * The array is computed once and cached in the current snapshot.
+	 * Concurrent callers might compute the same array but never block each other.
+	 * Expired listeners found while computing the array are unregistered.
+	 * The returned array must not be modified.
+	 *
+	 * @param eventType The event type.
+	 * @return The sorted array of listeners.
+	 */
+	private ListenerRegistration<?>[] getDispatchTable(Class<?> eventType) {
+		while (true) {
+			Registry r = this.registry.get();
+			ListenerRegistration<?>[] table = r.dispatchTables.get(eventType);
+			if (table != null)
+				return table;
+
+			List<ListenerRegistration<?>> expired = new ArrayList<>(0);
+			table = r.buildDispatchTable(eventType, expired);
+
+			if (expired.isEmpty()) {
+				ListenerRegistration<?>[] prev = r.dispatchTables.putIfAbsent(eventType, table);
+				return prev == null ? table : prev;
+			}
+
+			for (ListenerRegistration<?> l : expired)
+				unregister(l);
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the registered listeners, indexed by {@link ListenerRegistration#eventType}.
+	 * Any modification creates a new snapshot, so dispatch tables cached in a snapshot never become stale.
+	 */
+	private static final class Registry {
+		static final Registry EMPTY = new Registry(Map.of());
+
+		final Map<Class<?>, ListenerRegistration<?>[]> index;
+		final Map<Class<?>, ListenerRegistration<?>[]> dispatchTables = new ConcurrentHashMap<>();
+
+		Registry(Map<Class<?>, ListenerRegistration<?>[]> index) {
+			this.index = index;
+		}
+
+		boolean contains(ListenerRegistration<?> listener) {
+			ListenerRegistration<?>[] array = this.index.get(listener.eventType);
+			return array != null && indexOf(array, listener) != -1;
+		}
+
+		Registry with(ListenerRegistration<?> listener) {
+			Map<Class<?>, ListenerRegistration<?>[]> newIndex = new HashMap<>(this.index);
+			newIndex.merge(listener.eventType, new ListenerRegistration<?>[]{listener}, (array, single) -> {
+				ListenerRegistration<?>[] newArray = Arrays.copyOf(array, array.length + 1);
+				newArray[array.length] = listener;
+				return newArray;
+			});
+			return new Registry(newIndex);
+		}
+
+		Registry without(ListenerRegistration<?> listener) {
+			ListenerRegistration<?>[] array = this.index.get(listener.eventType);
+			int i = array == null ? -1 : indexOf(array, listener);
+			if (i == -1)
+				return null;
+
+			Map<Class<?>, ListenerRegistration<?>[]> newIndex = new HashMap<>(this.index);
+			if (array.length == 1) {
+				newIndex.remove(listener.eventType);
+			} else {
+				ListenerRegistration<?>[] newArray = new ListenerRegistration<?>[array.length - 1];
+				System.arraycopy(array, 0, newArray, 0, i);
+				System.arraycopy(array, i + 1, newArray, i, newArray.length - i);
+				newIndex.put(listener.eventType, newArray);
+			}
+			return new Registry(newIndex);
+		}
+
+		/**
+		 * Builds the sorted array of listeners for the given event type.
+		 * Expired listeners are not included and are added to the given list.
+		 *
+		 * @param eventType The event type.
+		 * @param expired   The list where expired listeners are added.
+		 * @return The sorted array of listeners.
+		 */
+		ListenerRegistration<?>[] buildDispatchTable(Class<?> eventType, List<ListenerRegistration<?>> expired) {
+			List<ListenerRegistration<?>> list = new ArrayList<>();
+			for (Class<?> type : supertypes.get(eventType)) {
+				ListenerRegistration<?>[] array = this.index.get(type);
+				if (array == null)
+					continue;
+
+				for (ListenerRegistration<?> l : array) {
+					if (l.isExpired())
+						expired.add(l);
+					else
+						list.add(l);
+				}
+			}
+
+			if (list.isEmpty())
+				return NO_LISTENERS;
+
+			Collections.sort(list);
+			return list.toArray(NO_LISTENERS);
+		}
+
+		private static int indexOf(ListenerRegistration<?>[] array, ListenerRegistration<?> listener) {
+			for (int i = 0; i < array.length; i++) {
+				if (array[i] == listener)
+					return i;
+			}
+			return -1;
 		}
-		return list;
 	}
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.event;
+
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records statistics about listener invocations.
+ * Statistics are recorded per listener and per event type.
+ * Statistics of a listener are discarded when it is unregistered.
+ * See {@link EventManager#setMetrics(EventMetrics)}.
+ */
+public class EventMetrics {
+	private static final Logger logger = ApplicationLogger.get(EventMetrics.class);
+
+	private final Map<ListenerRegistration<?>, Map<Class<?>, Stats>> stats = new ConcurrentHashMap<>();
+	private final long slowThreshold;
+
+	/**
+	 * Creates metrics.
+	 * Invocations slower than the threshold are logged.
+	 *
+	 * @param slowThreshold The threshold.
+	 * @param unit          The unit of the threshold.
+	 */
+	public EventMetrics(long slowThreshold, TimeUnit unit) {
+		if (slowThreshold < 0)
+			throw new IllegalArgumentException("slowThreshold");
+		this.slowThreshold = unit.toNanos(slowThreshold);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	void handle(EventManager manager, ListenerRegistration l, Event event) throws Exception {
+		Map<Class<?>, Stats> map = this.stats.get(l);
+		if (map == null) {
+			map = new ConcurrentHashMap<>();
+			Map<Class<?>, Stats> prev = this.stats.putIfAbsent(l, map);
+			if (prev != null) {
+				map = prev;
+			} else if (l.isExpired() || !manager.isRegistered(l)) {
+				// The listener was unregistered while the event was dispatched, so its statistics must not be retained
+				this.stats.remove(l, map);
+			}
+		}
+		Stats s = map.computeIfAbsent(event.getClass(), k -> new Stats());
+
+		long start = System.nanoTime();
+		try {
+			l.listener.handle(event);
+		} catch (Exception e) {
+			s.exceptions.increment();
+			throw e;
+		} finally {
+			long time = System.nanoTime() - start;
+			s.invocations.increment();
+			s.totalTime.add(time);
+			s.maxTime.accumulateAndGet(time, Math::max);
+
+			if (time > this.slowThreshold)
+				logger.warn("Listener {} took {}ms to handle event {}", l, time / 1_000_000F, event.getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * Removes the statistics of the listener.
+	 * Called when the listener is unregistered so that metrics do not retain it.
+	 *
+	 * @param l The listener.
+	 */
+	void remove(ListenerRegistration<?> l) {
+		this.stats.remove(l);
+	}
+
+	/**
+	 * Gets a snapshot of all statistics recorded so far.
+	 *
+	 * @return The list of entries.
+	 */
+	public List<Entry> snapshot() {
+		List<Entry> list = new ArrayList<>();
+		for (Map.Entry<ListenerRegistration<?>, Map<Class<?>, Stats>> e1 : this.stats.entrySet()) {
+			for (Map.Entry<Class<?>, Stats> e2 : e1.getValue().entrySet()) {
+				Stats s = e2.getValue();
+				list.add(new Entry(e1.getKey(), e2.getKey(), s.invocations.sum(), s.totalTime.sum(), s.maxTime.get(), s.exceptions.sum()));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Clears all statistics.
+	 */
+	public void reset() {
+		this.stats.clear();
+	}
+
+	/**
+	 * Statistics about the invocations of a listener for an event type.
+	 *
+	 * @param listener    The listener.
+	 * @param eventType   The event type.
+	 * @param invocations The number of invocations.
+	 * @param totalTime   The total time spent in the listener, in nanoseconds.
+	 * @param maxTime     The longest invocation, in nanoseconds.
+	 * @param exceptions  The number of invocations that have thrown an exception.
+	 */
+	public record Entry(ListenerRegistration<?> listener, Class<?> eventType, long invocations, long totalTime, long maxTime, long exceptions) {
+
+		/**
+		 * Gets the average time spent in the listener, in nanoseconds.
+		 *
+		 * @return The average time.
+		 */
+		public long averageTime() {
+			return this.invocations == 0 ? 0 : this.totalTime / this.invocations;
+		}
+	}
+
+	private static final class Stats {
+		final LongAdder invocations = new LongAdder(), totalTime = new LongAdder(), exceptions = new LongAdder();
+		final AtomicLong maxTime = new AtomicLong();
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.event;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Binds methods annotated with {@link Listener} to {@link EventListener}s.
+ * Each method is converted once per class using {@link LambdaMetafactory},
+ * so invoking the resulting listener costs the same as invoking a lambda.
+ */
+final class ListenerBinder {
+	private static final MethodType HANDLE_TYPE = MethodType.methodType(void.class, Event.class);
+
+	private static final MethodHandle ADAPT;
+
+	static {
+		try {
+			ADAPT = MethodHandles.lookup().findStatic(ListenerBinder.class, "adapt",
+					MethodType.methodType(EventListener.class, MethodHandle.class, Object.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static final ClassValue<Binding[]> bindings = new ClassValue<>() {
+		@Override
+		protected Binding[] computeValue(Class<?> type) {
+			return scan(type);
+		}
+	};
+
+	private ListenerBinder() {}
+
+	/**
+	 * Creates registrations for all methods annotated with {@link Listener} in the holder's class and its superclasses.
+	 *
+	 * @param holder The object holding the methods.
+	 * @return The registrations.
+	 */
+	static List<ListenerRegistration<?>> bind(Object holder) {
+		Binding[] array = bindings.get(holder.getClass());
+		List<ListenerRegistration<?>> list = new ArrayList<>(array.length);
+		for (Binding b : array)
+			list.add(b.bind(holder));
+		return list;
+	}
+
+	private static Binding[] scan(Class<?> type) {
+		List<Binding> list = new ArrayList<>();
+		Set<String> overridden = new HashSet<>();
+
+		for (Class<?> cl = type; cl != null && cl != Object.class; cl = cl.getSuperclass()) {
+			for (Method m : cl.getDeclaredMethods()) {
+				boolean isPrivate = Modifier.isPrivate(m.getModifiers());
+				if (!isPrivate && !overridden.add(m.getName() + Arrays.toString(m.getParameterTypes())))
+					continue;
+
+				// javac copies annotations to bridge methods, which must not shadow the erased method they override either
+				if (m.isBridge() || m.isSynthetic())
+					continue;
+
+				Listener a = m.getAnnotation(Listener.class);
+				if (a == null)
+					continue;
+
+				if (Modifier.isStatic(m.getModifiers()))
+					throw new IllegalArgumentException("Listener method must not be static: " + m);
+				if (m.getReturnType() != void.class)
+					throw new IllegalArgumentException("Listener method must return void: " + m);
+				if (m.getParameterCount() != 1 || !Event.class.isAssignableFrom(m.getParameterTypes()[0]))
+					throw new IllegalArgumentException("Listener method must have a single event parameter: " + m);
+
+				list.add(new Binding(m.getParameterTypes()[0].asSubclass(Event.class), factory(m), a.order(), a.ignoreCancelled(),
+						m.getDeclaringClass().getName() + "#" + m.getName()));
+			}
+		}
+
+		return list.toArray(new Binding[0]);
+	}
+
+	private static MethodHandle factory(Method m) {
+		Class<?> owner = m.getDeclaringClass();
+		MethodHandle target;
+		MethodHandles.Lookup lookup;
+		try {
+			lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+			target = lookup.unreflect(m);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Listener method is not accessible: " + m, e);
+		}
+
+		try {
+			return LambdaMetafactory.metafactory(lookup, "handle", MethodType.methodType(EventListener.class, owner),
+					HANDLE_TYPE, target, MethodType.methodType(void.class, m.getParameterTypes()[0])).getTarget();
+		} catch (LambdaConversionException e) {
+			// The lookup might not have full privilege access, for example when the owner is defined in another module.
+			MethodHandle wrapper = MethodHandles.insertArguments(ADAPT, 0, target);
+			return wrapper.asType(MethodType.methodType(EventListener.class, owner));
+		}
+	}
+
+	private static EventListener<Event> adapt(MethodHandle target, Object holder) {
+		MethodHandle bound = target.bindTo(holder).asType(HANDLE_TYPE);
+		return event -> {
+			try {
+				bound.invokeExact(event);
+			} catch (Exception | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		};
+	}
+
+	private record Binding(Class<? extends Event> eventType, MethodHandle factory, int order, boolean ignoreCancelled, String name) {
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ListenerRegistration<?> bind(Object holder) {
+			EventListener listener;
+			try {
+				listener = (EventListener) this.factory.invoke(holder);
+			} catch (Throwable t) {
+				throw new IllegalStateException("Failed to bind listener", t);
+			}
+			String name = this.name;
+			return new ListenerRegistration(this.eventType, listener, this.order, this.ignoreCancelled) {
+				@Override
+				public String toString() {
+					return name;
+				}
+			};
+		}
+	}
+}
@@ -25,6 +25,8 @@ package net.smoofyuniverse.common.event;
 import net.smoofyuniverse.common.app.ApplicationManager;
 import net.smoofyuniverse.common.util.ReflectionUtil;
 
+import java.util.concurrent.Executor;
+
 /**
  * A listener registration.
  * Contains a listener and few properties for the event manager.
@@ -54,6 +56,14 @@ public class ListenerRegistration<T extends Event> implements Comparable<Listene
 	 */
 	public final boolean ignoreCancelled;
 
+	/**
+	 * The executor used to handle events posted asynchronously.
+	 * Null means the listener runs on the same thread as the previous listener.
+	 * Events posted synchronously are always handled on the posting thread.
+	 * See {@link EventManager#postEventAsync(Event)}.
+	 */
+	public final Executor executor;
+
 	public ListenerRegistration(EventListener<T> listener) {
 		this(listener, 0);
 	}
@@ -67,10 +77,15 @@ public class ListenerRegistration<T extends Event> implements Comparable<Listene
 	}
 
 	public ListenerRegistration(Class<? extends T> eventType, EventListener<T> listener, int order, boolean ignoreCancelled) {
+		this(eventType, listener, order, ignoreCancelled, null);
+	}
+
+	public ListenerRegistration(Class<? extends T> eventType, EventListener<T> listener, int order, boolean ignoreCancelled, Executor executor) {
 		this.eventType = eventType;
 		this.listener = listener;
 		this.order = order;
 		this.ignoreCancelled = ignoreCancelled;
+		this.executor = executor;
 	}
 
 	public ListenerRegistration(Class<? extends T> eventType, EventListener<T> listener) {
@@ -90,6 +105,27 @@ public class ListenerRegistration<T extends Event> implements Comparable<Listene
 		return ApplicationManager.get().getEventManager().register(this);
 	}
 
+	/**
+	 * Gets whether this listener has expired.
+	 * Expired listeners are automatically unregistered.
+	 *
+	 * @return Whether this listener has expired.
+	 */
+	public boolean isExpired() {
+		return false;
+	}
+
+	/**
+	 * Gets a description of this listener, used in logs.
+	 * Listeners bound from annotated methods are described by their declaring class and method.
+	 *
+	 * @return The description.
+	 */
+	@Override
+	public String toString() {
+		return this.listener.getClass().getName();
+	}
+
 	@Override
 	public int compareTo(ListenerRegistration<?> o) {
 		return Integer.compare(this.order, o.order);
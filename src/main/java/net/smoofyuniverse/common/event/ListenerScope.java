@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of listeners unregistered together when the scope is closed.
+ * See {@link EventManager#newScope()}.
+ */
+public class ListenerScope implements AutoCloseable {
+	private final EventManager manager;
+	private final List<ListenerRegistration<?>> listeners = new ArrayList<>();
+	private boolean closed;
+
+	ListenerScope(EventManager manager) {
+		this.manager = manager;
+	}
+
+	/**
+	 * Registers the {@link ListenerRegistration} in this scope.
+	 * The listener will receive events until this scope is closed.
+	 *
+	 * @param listener The listener.
+	 * @return Whether the listener wasn't already registered.
+	 */
+	public synchronized boolean register(ListenerRegistration<?> listener) {
+		if (this.closed)
+			throw new IllegalStateException("Scope closed");
+		if (!this.manager.register(listener))
+			return false;
+		this.listeners.add(listener);
+		return true;
+	}
+
+	/**
+	 * Registers all methods annotated with {@link Listener} in this scope.
+	 * See {@link EventManager#register(Object)}.
+	 *
+	 * @param holder The object holding the listener methods.
+	 * @return The new registrations.
+	 */
+	public synchronized List<ListenerRegistration<?>> register(Object holder) {
+		if (this.closed)
+			throw new IllegalStateException("Scope closed");
+		List<ListenerRegistration<?>> list = this.manager.register(holder);
+		this.listeners.addAll(list);
+		return list;
+	}
+
+	/**
+	 * Gets whether this scope is closed.
+	 *
+	 * @return Whether this scope is closed.
+	 */
+	public synchronized boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * Unregisters all listeners of this scope.
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.closed)
+			return;
+		this.closed = true;
+
+		for (ListenerRegistration<?> l : this.listeners)
+			this.manager.unregister(l);
+		this.listeners.clear();
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.event;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
+
+/**
+ * A listener registration that doesn't prevent its owner from being garbage collected.
+ * The registration expires when the owner is collected and is then automatically unregistered.
+ * The listener must not hold a strong reference to the owner, the owner is provided to the listener instead.
+ *
+ * @param <T> The event type.
+ * @param <O> The owner type.
+ */
+public class WeakListenerRegistration<T extends Event, O> extends ListenerRegistration<T> {
+	private final WeakReference<O> owner;
+
+	public WeakListenerRegistration(O owner, Class<? extends T> eventType, OwnerListener<O, T> listener) {
+		this(owner, eventType, listener, 0);
+	}
+
+	public WeakListenerRegistration(O owner, Class<? extends T> eventType, OwnerListener<O, T> listener, int order) {
+		this(owner, eventType, listener, order, true, null);
+	}
+
+	public WeakListenerRegistration(O owner, Class<? extends T> eventType, OwnerListener<O, T> listener, int order, boolean ignoreCancelled, Executor executor) {
+		this(reference(owner), eventType, listener, order, ignoreCancelled, executor);
+	}
+
+	private WeakListenerRegistration(WeakReference<O> owner, Class<? extends T> eventType, OwnerListener<O, T> listener, int order, boolean ignoreCancelled, Executor executor) {
+		super(eventType, e -> {
+			O o = owner.get();
+			if (o != null)
+				listener.handle(o, e);
+		}, order, ignoreCancelled, executor);
+		if (listener == null)
+			throw new IllegalArgumentException("listener");
+		this.owner = owner;
+	}
+
+	private static <O> WeakReference<O> reference(O owner) {
+		if (owner == null)
+			throw new IllegalArgumentException("owner");
+		return new WeakReference<>(owner);
+	}
+
+	/**
+	 * Gets the owner.
+	 *
+	 * @return The owner, or null if it has been garbage collected.
+	 */
+	public O getOwner() {
+		return this.owner.get();
+	}
+
+	@Override
+	public boolean isExpired() {
+		return this.owner.get() == null;
+	}
+
+	public interface OwnerListener<O, T extends Event> {
+
+		/**
+		 * Handles the event.
+		 *
+		 * @param owner The owner.
+		 * @param event The event.
+		 * @throws Exception if any exception occurs.
+		 */
+		void handle(O owner, T event) throws Exception;
+	}
+}
@@ -26,8 +26,11 @@ import org.slf4j.ILoggerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Locale;
+
 public class ApplicationLogger {
-	private static ILoggerFactory factory = new LoggerFactoryProxy();
+	private static volatile LoggerLevels levels = LoggerLevels.fromSystemProperty();
+	private static volatile ILoggerFactory factory = new LoggerFactoryProxy();
 
 	public static void _bind() {
 		ILoggerFactory newFactory = LoggerFactory.getILoggerFactory();
@@ -46,4 +49,83 @@ public class ApplicationLogger {
 	public static ILoggerFactory getFactory() {
 		return factory;
 	}
+
+	/**
+	 * Creates a logger forwarding at most the given number of messages per second for each message format and first argument.
+	 * Bursts of up to one second of messages are allowed.
+	 * See {@link #rateLimited(Logger, double, int)}.
+	 *
+	 * @param logger    The logger.
+	 * @param perSecond The maximum number of messages per second for each format and first argument.
+	 * @return The rate limited logger.
+	 */
+	public static Logger rateLimited(Logger logger, double perSecond) {
+		return rateLimited(logger, perSecond, (int) Math.max(1, Math.ceil(perSecond)));
+	}
+
+	/**
+	 * Creates a logger forwarding at most the given number of messages per second for each message format and first argument.
+	 * Messages with the same format but a different first argument, such as a different URL or file, are limited separately.
+	 * While messages are being suppressed, a summary with the number of suppressed messages is logged every second.
+	 *
+	 * @param logger    The logger.
+	 * @param perSecond The maximum number of messages per second for each format and first argument.
+	 * @param burst     The maximum number of messages forwarded at once.
+	 * @return The rate limited logger.
+	 */
+	public static Logger rateLimited(Logger logger, double perSecond, int burst) {
+		if (logger == null)
+			throw new IllegalArgumentException("logger");
+		if (!(perSecond > 0))
+			throw new IllegalArgumentException("perSecond");
+		if (burst < 1)
+			throw new IllegalArgumentException("burst");
+		return new RateLimitedLogger(logger, perSecond, burst);
+	}
+
+	/**
+	 * Gets the levels of the default loggers used before binding.
+	 *
+	 * @return The levels.
+	 */
+	public static LoggerLevels getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Sets the levels of the default loggers used before binding.
+	 * Existing default loggers are reconfigured.
+	 *
+	 * @param value The levels.
+	 */
+	public static void setLevels(LoggerLevels value) {
+		if (value == null)
+			throw new IllegalArgumentException("value");
+		levels = value;
+		if (factory instanceof LoggerFactoryProxy proxy)
+			proxy.setLevels(value);
+	}
+
+	/**
+	 * Gets the output format of the default loggers.
+	 *
+	 * @return The format.
+	 */
+	public static LogFormat getFormat() {
+		return LogWriter.INSTANCE.getFormat();
+	}
+
+	/**
+	 * Sets the output format of the default loggers.
+	 * The format is also stored in the {@code app.logger.format} system property
+	 * which is read by the bundled log4j2 configuration, so it must be set before binding to apply to both.
+	 *
+	 * @param value The format.
+	 */
+	public static void setFormat(LogFormat value) {
+		if (value == null)
+			throw new IllegalArgumentException("value");
+		System.setProperty("app.logger.format", value.name().toLowerCase(Locale.ROOT));
+		LogWriter.INSTANCE.setFormat(value);
+	}
 }
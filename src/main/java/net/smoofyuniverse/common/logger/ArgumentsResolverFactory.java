@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.layout.template.json.resolver.*;
+import org.apache.logging.log4j.layout.template.json.util.JsonWriter;
+
+/**
+ * A resolver of {@code JsonTemplateLayout} writing the arguments of the message as strings.
+ * Unlike {@code messageParameter}, the throwable passed as last argument is excluded,
+ * so that log4j writes the same {@code args} field as {@link DefaultLogger}.
+ */
+@Plugin(name = "ArgumentsResolverFactory", category = TemplateResolverFactory.CATEGORY)
+public final class ArgumentsResolverFactory implements EventResolverFactory {
+	private static final ArgumentsResolverFactory INSTANCE = new ArgumentsResolverFactory();
+
+	private ArgumentsResolverFactory() {}
+
+	@Override
+	public String getName() {
+		return "arguments";
+	}
+
+	@Override
+	public EventResolver create(EventResolverContext context, TemplateResolverConfig config) {
+		return new Resolver();
+	}
+
+	@PluginFactory
+	public static ArgumentsResolverFactory getInstance() {
+		return INSTANCE;
+	}
+
+	private static final class Resolver implements EventResolver {
+
+		@Override
+		public boolean isResolvable(LogEvent event) {
+			return getArgumentCount(event) != 0;
+		}
+
+		@Override
+		public void resolve(LogEvent event, JsonWriter writer) {
+			Object[] args = event.getMessage().getParameters();
+			int count = getArgumentCount(event);
+
+			writer.writeArrayStart();
+			for (int i = 0; i < count; i++) {
+				if (i != 0)
+					writer.writeSeparator();
+				writer.writeString(toArgumentString(args[i]));
+			}
+			writer.writeArrayEnd();
+		}
+	}
+
+	/**
+	 * Gets the number of arguments of the message, excluding the throwable passed as last argument.
+	 *
+	 * @param event The event.
+	 * @return The number of arguments.
+	 */
+	static int getArgumentCount(LogEvent event) {
+		Object[] args = event.getMessage().getParameters();
+		if (args == null)
+			return 0;
+
+		int count = args.length;
+		if (count != 0 && event.getThrown() != null && args[count - 1] == event.getThrown())
+			count--;
+		return count;
+	}
+
+	static String toArgumentString(Object arg) {
+		try {
+			return String.valueOf(arg);
+		} catch (Throwable t) {
+			return "[FAILED toString()]";
+		}
+	}
+}
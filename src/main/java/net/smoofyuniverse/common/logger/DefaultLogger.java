@@ -22,28 +22,57 @@
 
 package net.smoofyuniverse.common.logger;
 
+import org.slf4j.event.Level;
 import org.slf4j.helpers.FormattingTuple;
 import org.slf4j.helpers.MarkerIgnoringBase;
 import org.slf4j.helpers.MessageFormatter;
 
-import java.time.LocalTime;
-
 public class DefaultLogger extends MarkerIgnoringBase {
-	private final String simpleName;
-
+	private final boolean traceEnabled, debugEnabled, infoEnabled, warnEnabled, errorEnabled;
+
+	/**
+	 * Creates a logger using the current levels.
+	 * See {@link ApplicationLogger#getLevels()}.
+	 *
+	 * @param name The name.
+	 */
 	public DefaultLogger(String name) {
-		this.name = name;
-		int i = name.lastIndexOf(".");
-		this.simpleName = i == -1 ? name : name.substring(i + 1);
+		this(name, ApplicationLogger.getLevels().getLevel(name));
 	}
 
-	protected String time() {
-		LocalTime t = LocalTime.now();
-		return String.format("%02d:%02d:%02d", t.getHour(), t.getMinute(), t.getSecond());
+	/**
+	 * Creates a logger.
+	 *
+	 * @param name  The name.
+	 * @param level The minimum level of logged messages.
+	 */
+	public DefaultLogger(String name, Level level) {
+		this.name = name;
+
+		int l = level.toInt();
+		this.traceEnabled = l <= Level.TRACE.toInt();
+		this.debugEnabled = l <= Level.DEBUG.toInt();
+		this.infoEnabled = l <= Level.INFO.toInt();
+		this.warnEnabled = l <= Level.WARN.toInt();
+		this.errorEnabled = l <= Level.ERROR.toInt();
 	}
 
 	protected void log(String level, String msg) {
-		System.out.println(time() + " [" + this.simpleName + "] " + level + " - " + msg);
+		log(level, msg, null, null);
+	}
+
+	/**
+	 * Logs a message.
+	 * The arguments are only written by structured formats.
+	 * The stack trace of the throwable is written in the same record as the message.
+	 *
+	 * @param level  The level.
+	 * @param msg    The formatted message.
+	 * @param args   The arguments of the message, or null.
+	 * @param thrown The throwable, or null.
+	 */
+	protected void log(String level, String msg, Object[] args, Throwable thrown) {
+		LogWriter.INSTANCE.write(System.currentTimeMillis(), this.name, level, msg, args, thrown);
 	}
 
 	protected void _trace(String msg) {
@@ -61,9 +90,7 @@ public class DefaultLogger extends MarkerIgnoringBase {
 	}
 
 	protected void _trace(FormattingTuple msg) {
-		_trace(msg.getMessage());
-		if (msg.getThrowable() != null)
-			msg.getThrowable().printStackTrace();
+		log("TRACE", msg.getMessage(), msg.getArgArray(), msg.getThrowable());
 	}
 
 	protected void _info(String msg) {
@@ -98,7 +125,7 @@ public class DefaultLogger extends MarkerIgnoringBase {
 
 	@Override
 	public boolean isTraceEnabled() {
-		return false;
+		return this.traceEnabled;
 	}
 
 	@Override
@@ -108,9 +135,7 @@ public class DefaultLogger extends MarkerIgnoringBase {
 	}
 
 	protected void _debug(FormattingTuple msg) {
-		_debug(msg.getMessage());
-		if (msg.getThrowable() != null)
-			msg.getThrowable().printStackTrace();
+		log("DEBUG", msg.getMessage(), msg.getArgArray(), msg.getThrowable());
 	}
 
 	@Override
@@ -127,15 +152,13 @@ public class DefaultLogger extends MarkerIgnoringBase {
 
 	@Override
 	public void trace(String msg, Throwable t) {
-		if (isTraceEnabled()) {
-			_trace(msg);
-			t.printStackTrace();
-		}
+		if (isTraceEnabled())
+			log("TRACE", msg, null, t);
 	}
 
 	@Override
 	public boolean isDebugEnabled() {
-		return true;
+		return this.debugEnabled;
 	}
 
 	@Override
@@ -151,9 +174,7 @@ public class DefaultLogger extends MarkerIgnoringBase {
 	}
 
 	protected void _info(FormattingTuple msg) {
-		_info(msg.getMessage());
-		if (msg.getThrowable() != null)
-			msg.getThrowable().printStackTrace();
+		log("INFO ", msg.getMessage(), msg.getArgArray(), msg.getThrowable());
 	}
 
 	@Override
@@ -164,15 +185,13 @@ public class DefaultLogger extends MarkerIgnoringBase {
 
 	@Override
 	public void debug(String msg, Throwable t) {
-		if (isDebugEnabled()) {
-			_debug(msg);
-			t.printStackTrace();
-		}
+		if (isDebugEnabled())
+			log("DEBUG", msg, null, t);
 	}
 
 	@Override
 	public boolean isInfoEnabled() {
-		return true;
+		return this.infoEnabled;
 	}
 
 	@Override
@@ -194,22 +213,18 @@ public class DefaultLogger extends MarkerIgnoringBase {
 	}
 
 	protected void _warn(FormattingTuple msg) {
-		_warn(msg.getMessage());
-		if (msg.getThrowable() != null)
-			msg.getThrowable().printStackTrace();
+		log("WARN ", msg.getMessage(), msg.getArgArray(), msg.getThrowable());
 	}
 
 	@Override
 	public void info(String msg, Throwable t) {
-		if (isInfoEnabled()) {
-			_info(msg);
-			t.printStackTrace();
-		}
+		if (isInfoEnabled())
+			log("INFO ", msg, null, t);
 	}
 
 	@Override
 	public boolean isWarnEnabled() {
-		return true;
+		return this.warnEnabled;
 	}
 
 	@Override
@@ -238,15 +253,13 @@ public class DefaultLogger extends MarkerIgnoringBase {
 
 	@Override
 	public void warn(String msg, Throwable t) {
-		if (isWarnEnabled()) {
-			_warn(msg);
-			t.printStackTrace();
-		}
+		if (isWarnEnabled())
+			log("WARN ", msg, null, t);
 	}
 
 	@Override
 	public boolean isErrorEnabled() {
-		return true;
+		return this.errorEnabled;
 	}
 
 	@Override
@@ -256,9 +269,7 @@ public class DefaultLogger extends MarkerIgnoringBase {
 	}
 
 	protected void _error(FormattingTuple msg) {
-		_error(msg.getMessage());
-		if (msg.getThrowable() != null)
-			msg.getThrowable().printStackTrace();
+		log("ERROR", msg.getMessage(), msg.getArgArray(), msg.getThrowable());
 	}
 
 	@Override
@@ -275,9 +286,7 @@ public class DefaultLogger extends MarkerIgnoringBase {
 
 	@Override
 	public void error(String msg, Throwable t) {
-		if (isErrorEnabled()) {
-			_error(msg);
-			t.printStackTrace();
-		}
+		if (isErrorEnabled())
+			log("ERROR", msg, null, t);
 	}
 }
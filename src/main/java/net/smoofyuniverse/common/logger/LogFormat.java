@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+/**
+ * The output format of log records.
+ */
+public enum LogFormat {
+	/**
+	 * Human readable lines: {@code HH:mm:ss [Name] LEVEL - message}.
+	 */
+	TEXT,
+	/**
+	 * One JSON object per line with the fields
+	 * {@code time} (milliseconds since epoch), {@code thread}, {@code logger}, {@code level}, {@code message} and {@code args}.
+	 */
+	JSON,
+	/**
+	 * One line of {@code key=value} pairs per record with the fields
+	 * {@code time} (milliseconds since epoch), {@code thread}, {@code logger}, {@code level}, {@code message}
+	 * and {@code arg0}, {@code arg1}, etc.
+	 */
+	LOGFMT
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Formats timestamps as {@code HH:mm:ss}.
+ * The formatted value is cached for the current second.
+ */
+final class LogTime {
+	private static volatile Entry cache = new Entry(Long.MIN_VALUE, "");
+
+	private LogTime() {}
+
+	/**
+	 * Formats the time as {@code HH:mm:ss} in the default time zone.
+	 *
+	 * @param millis The time, in milliseconds since epoch.
+	 * @return The formatted time.
+	 */
+	static String format(long millis) {
+		long second = Math.floorDiv(millis, 1000);
+		Entry e = cache;
+		if (e.second != second) {
+			e = new Entry(second, compute(second));
+			cache = e;
+		}
+		return e.value;
+	}
+
+	private static String compute(long second) {
+		int offset = ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochSecond(second)).getTotalSeconds();
+		int t = Math.floorMod(second + offset, 86400);
+		int h = t / 3600, m = (t / 60) % 60, s = t % 60;
+
+		char[] chars = new char[8];
+		chars[0] = (char) ('0' + h / 10);
+		chars[1] = (char) ('0' + h % 10);
+		chars[2] = ':';
+		chars[3] = (char) ('0' + m / 10);
+		chars[4] = (char) ('0' + m % 10);
+		chars[5] = ':';
+		chars[6] = (char) ('0' + s / 10);
+		chars[7] = (char) ('0' + s % 10);
+		return new String(chars);
+	}
+
+	private record Entry(long second, String value) {}
+}
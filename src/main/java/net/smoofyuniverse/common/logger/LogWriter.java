@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import java.io.*;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes records of all {@link DefaultLogger}s to the standard output.
+ * <p>
+ * In asynchronous mode, records are enqueued in a bounded lock-free ring buffer
+ * and a single daemon thread drains them into a buffered writer.
+ * Pending records are flushed when the JVM shuts down.
+ * <p>
+ * The following system properties are read once:
+ * {@code app.logger.async} (default true),
+ * {@code app.logger.bufferSize} (default 8192 records)
+ * and {@code app.logger.overflow} (see {@link OverflowPolicy}, default BLOCK).
+ * The format is read from {@code app.logger.format} (see {@link LogFormat}, default TEXT).
+ * <p>
+ * Stack traces are rendered within the record of their message.
+ * The number of frames per throwable can be limited with {@code app.logger.stackDepth} (default 0, no limit).
+ * A trace identical to a recently written one is replaced by a reference to its id: {@code same as #N}.
+ */
+final class LogWriter {
+	static final LogWriter INSTANCE = create();
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private volatile LogFormat format;
+
+	private final Object outputLock = new Object();
+	private final StringBuilder line = new StringBuilder(256);
+	private char[] chars = new char[256];
+	private final ThrowableRenderer renderer;
+	private PrintStream stream;
+	private Writer writer;
+
+	private final OverflowPolicy policy;
+	private final Slot[] slots;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong(), dropped = new AtomicLong();
+	private long head;
+
+	private final Thread thread;
+	private volatile boolean waiting, closed;
+
+	LogWriter(LogFormat format, int stackDepth, boolean async, int bufferSize, OverflowPolicy policy) {
+		this.format = format;
+		this.renderer = new ThrowableRenderer(stackDepth, 64);
+		this.policy = policy;
+
+		if (async) {
+			int capacity = Integer.highestOneBit(Math.max(bufferSize, 16) - 1) << 1;
+			this.slots = new Slot[capacity];
+			for (int i = 0; i < capacity; i++)
+				this.slots[i] = new Slot(i);
+			this.mask = capacity - 1;
+
+			this.thread = new Thread(this::run, "Logger");
+			this.thread.setDaemon(true);
+			this.thread.start();
+
+			Runtime.getRuntime().addShutdownHook(new Thread(this::close, "Logger shutdown"));
+		} else {
+			this.slots = null;
+			this.mask = 0;
+			this.thread = null;
+			this.closed = true;
+		}
+	}
+
+	private static LogWriter create() {
+		boolean async = !"false".equalsIgnoreCase(System.getProperty("app.logger.async"));
+		int bufferSize = Integer.getInteger("app.logger.bufferSize", 8192);
+
+		OverflowPolicy policy = OverflowPolicy.BLOCK;
+		String value = System.getProperty("app.logger.overflow");
+		if (value != null) {
+			try {
+				policy = OverflowPolicy.valueOf(value.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				System.err.println("Unknown logger overflow policy: " + value);
+			}
+		}
+
+		return new LogWriter(formatFromSystemProperty(), Integer.getInteger("app.logger.stackDepth", 0), async, bufferSize, policy);
+	}
+
+	static LogFormat formatFromSystemProperty() {
+		String value = System.getProperty("app.logger.format");
+		if (value != null) {
+			try {
+				return LogFormat.valueOf(value.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				System.err.println("Unknown logger format: " + value);
+			}
+		}
+		return LogFormat.TEXT;
+	}
+
+	LogFormat getFormat() {
+		return this.format;
+	}
+
+	void setFormat(LogFormat value) {
+		this.format = value;
+	}
+
+	/**
+	 * Writes a record.
+	 * The record might be written later by another thread.
+	 *
+	 * @param time    The time, in milliseconds since epoch.
+	 * @param name    The name of the logger.
+	 * @param level   The level.
+	 * @param message The message.
+	 * @param args    The arguments of the message, or null.
+	 * @param thrown  The throwable, or null.
+	 */
+	void write(long time, String name, String level, String message, Object[] args, Throwable thrown) {
+		String thread = Thread.currentThread().getName();
+		String[] strArgs = args == null || args.length == 0 || this.format == LogFormat.TEXT ? null : toStrings(args);
+
+		while (!this.closed) {
+			if (offer(time, thread, name, level, message, strArgs, thrown)) {
+				if (this.closed)
+					drain();
+				else if (this.waiting)
+					LockSupport.unpark(this.thread);
+				return;
+			}
+
+			if (this.policy == OverflowPolicy.DROP) {
+				this.dropped.incrementAndGet();
+				return;
+			}
+
+			LockSupport.unpark(this.thread);
+			LockSupport.parkNanos(10_000);
+		}
+
+		synchronized (this.outputLock) {
+			append(time, thread, name, level, message, strArgs, thrown);
+			flushOutput();
+		}
+	}
+
+	private static String[] toStrings(Object[] args) {
+		String[] strings = new String[args.length];
+		for (int i = 0; i < args.length; i++) {
+			try {
+				strings[i] = String.valueOf(args[i]);
+			} catch (Throwable t) {
+				strings[i] = "[FAILED toString()]";
+			}
+		}
+		return strings;
+	}
+
+	private boolean offer(long time, String thread, String name, String level, String message, String[] args, Throwable thrown) {
+		long pos = this.tail.get();
+		while (true) {
+			Slot slot = this.slots[(int) pos & this.mask];
+			long dif = slot.sequence - pos;
+			if (dif == 0) {
+				if (this.tail.compareAndSet(pos, pos + 1)) {
+					slot.time = time;
+					slot.thread = thread;
+					slot.name = name;
+					slot.level = level;
+					slot.message = message;
+					slot.args = args;
+					slot.thrown = thrown;
+					slot.sequence = pos + 1;
+					return true;
+				}
+				pos = this.tail.get();
+			} else if (dif < 0) {
+				return false;
+			} else {
+				pos = this.tail.get();
+			}
+		}
+	}
+
+	private void run() {
+		while (true) {
+			if (!drain()) {
+				if (this.closed)
+					return;
+
+				this.waiting = true;
+				if (isEmpty() && !this.closed)
+					LockSupport.parkNanos(this, 100_000_000);
+				this.waiting = false;
+			}
+		}
+	}
+
+	private boolean isEmpty() {
+		return this.slots[(int) this.head & this.mask].sequence != this.head + 1;
+	}
+
+	/**
+	 * Writes all pending records.
+	 *
+	 * @return Whether at least one record has been written.
+	 */
+	private boolean drain() {
+		boolean written = false;
+		synchronized (this.outputLock) {
+			long n = this.dropped.getAndSet(0);
+			if (n != 0) {
+				append(System.currentTimeMillis(), Thread.currentThread().getName(), DefaultLogger.class.getName(), "WARN ", n + " log records have been dropped", null, null);
+				written = true;
+			}
+
+			while (true) {
+				Slot slot = this.slots[(int) this.head & this.mask];
+				if (slot.sequence != this.head + 1)
+					break;
+
+				append(slot.time, slot.thread, slot.name, slot.level, slot.message, slot.args, slot.thrown);
+				slot.thread = null;
+				slot.name = null;
+				slot.level = null;
+				slot.message = null;
+				slot.args = null;
+				slot.thrown = null;
+				slot.sequence = this.head + this.slots.length;
+				this.head++;
+				written = true;
+			}
+
+			if (written)
+				flushOutput();
+		}
+		return written;
+	}
+
+	private void append(long time, String thread, String name, String level, String message, String[] args, Throwable thrown) {
+		StringBuilder b = this.line;
+		b.setLength(0);
+
+		switch (this.format) {
+			case TEXT -> {
+				b.append(LogTime.format(time)).append(" [").append(name, name.lastIndexOf('.') + 1, name.length())
+						.append("] ").append(level).append(" - ").append(message);
+				if (thrown != null) {
+					ThrowableRenderer r = render(thrown);
+					b.append(LINE_SEPARATOR);
+					if (r.isDuplicate())
+						b.append("[same as #").append(r.id()).append("] ").append(thrown);
+					else
+						b.append("[#").append(r.id()).append("] ").append(r.text());
+				}
+			}
+			case JSON -> {
+				b.append("{\"time\":").append(time);
+				b.append(",\"thread\":");
+				appendJson(b, thread);
+				b.append(",\"logger\":");
+				appendJson(b, name);
+				b.append(",\"level\":\"");
+				appendLevel(b, level);
+				b.append("\",\"message\":");
+				appendJson(b, message);
+				if (args != null) {
+					b.append(",\"args\":[");
+					for (int i = 0; i < args.length; i++) {
+						if (i != 0)
+							b.append(',');
+						appendJson(b, args[i]);
+					}
+					b.append(']');
+				}
+				if (thrown != null) {
+					ThrowableRenderer r = render(thrown);
+					b.append(",\"error\":");
+					if (r.isDuplicate())
+						b.append("\"same as #").append(r.id()).append('"');
+					else
+						appendJson(b, r.text());
+					b.append(",\"errorId\":").append(r.id());
+				}
+				b.append('}');
+			}
+			case LOGFMT -> {
+				b.append("time=").append(time);
+				b.append(" thread=");
+				appendLogfmt(b, thread);
+				b.append(" logger=");
+				appendLogfmt(b, name);
+				b.append(" level=");
+				appendLevel(b, level);
+				b.append(" message=");
+				appendLogfmt(b, message);
+				if (args != null) {
+					for (int i = 0; i < args.length; i++) {
+						b.append(" arg").append(i).append('=');
+						appendLogfmt(b, args[i]);
+					}
+				}
+				if (thrown != null) {
+					ThrowableRenderer r = render(thrown);
+					b.append(" error=");
+					if (r.isDuplicate())
+						b.append("\"same as #").append(r.id()).append('"');
+					else
+						appendLogfmt(b, r.text());
+					b.append(" errorId=").append(r.id());
+				}
+			}
+		}
+		b.append(LINE_SEPARATOR);
+
+		// Writer.append(CharSequence) would copy the line into a new string
+		int length = b.length();
+		if (this.chars.length < length)
+			this.chars = new char[Math.max(length, this.chars.length * 2)];
+		b.getChars(0, length, this.chars, 0);
+
+		try {
+			output().write(this.chars, 0, length);
+		} catch (IOException ignored) {
+		}
+	}
+
+	private ThrowableRenderer render(Throwable t) {
+		this.renderer.render(t);
+		return this.renderer;
+	}
+
+	private static void appendLevel(StringBuilder b, String level) {
+		int end = level.length();
+		while (end > 0 && level.charAt(end - 1) == ' ')
+			end--;
+		b.append(level, 0, end);
+	}
+
+	private static void appendJson(StringBuilder b, CharSequence value) {
+		if (value == null) {
+			b.append("null");
+			return;
+		}
+		b.append('"');
+		appendEscaped(b, value);
+		b.append('"');
+	}
+
+	static void appendLogfmt(StringBuilder b, CharSequence value) {
+		if (value == null) {
+			b.append("null");
+			return;
+		}
+
+		boolean quote = value.isEmpty();
+		for (int i = 0, n = value.length(); !quote && i < n; i++) {
+			char c = value.charAt(i);
+			quote = c <= ' ' || c == '=' || c == '"' || c == '\\';
+		}
+
+		if (quote) {
+			b.append('"');
+			appendEscaped(b, value);
+			b.append('"');
+		} else {
+			b.append(value);
+		}
+	}
+
+	private static void appendEscaped(StringBuilder b, CharSequence value) {
+		int start = 0;
+		for (int i = 0, n = value.length(); i < n; i++) {
+			char c = value.charAt(i);
+			if (c >= ' ' && c != '"' && c != '\\')
+				continue;
+
+			b.append(value, start, i);
+			start = i + 1;
+			switch (c) {
+				case '"' -> b.append("\\\"");
+				case '\\' -> b.append("\\\\");
+				case '\n' -> b.append("\\n");
+				case '\r' -> b.append("\\r");
+				case '\t' -> b.append("\\t");
+				default -> {
+					b.append("\\u00");
+					b.append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+				}
+			}
+		}
+		b.append(value, start, value.length());
+	}
+
+	private Writer output() {
+		PrintStream out = System.out;
+		if (out != this.stream) {
+			flushOutput();
+			this.stream = out;
+			this.writer = new BufferedWriter(new OutputStreamWriter(out), 8192);
+		}
+		return this.writer;
+	}
+
+	private void flushOutput() {
+		if (this.writer != null) {
+			try {
+				this.writer.flush();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	/**
+	 * Stops the writer thread after all pending records are written.
+	 * Records written after this are written synchronously.
+	 */
+	void close() {
+		if (this.closed)
+			return;
+
+		this.closed = true;
+		LockSupport.unpark(this.thread);
+		try {
+			this.thread.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// Records enqueued concurrently with closing
+		drain();
+	}
+
+	private static final class Slot {
+		volatile long sequence;
+		long time;
+		String thread, name, level, message;
+		String[] args;
+		Throwable thrown;
+
+		Slot(long sequence) {
+			this.sequence = sequence;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+
+/**
+ * A converter of {@code PatternLayout} writing the arguments of the message as logfmt fields,
+ * named {@code arg0} to {@code argN} like {@link DefaultLogger}.
+ * The throwable passed as last argument is excluded.
+ * Usage: {@code %logfmtArgs}.
+ */
+@Plugin(name = "LogfmtArgumentsConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({"logfmtArgs"})
+public final class LogfmtArgumentsConverter extends LogEventPatternConverter {
+	private static final LogfmtArgumentsConverter INSTANCE = new LogfmtArgumentsConverter();
+
+	private LogfmtArgumentsConverter() {
+		super("logfmtArgs", "logfmtArgs");
+	}
+
+	public static LogfmtArgumentsConverter newInstance(String[] options) {
+		return INSTANCE;
+	}
+
+	@Override
+	public void format(LogEvent event, StringBuilder toAppendTo) {
+		Object[] args = event.getMessage().getParameters();
+		int count = ArgumentsResolverFactory.getArgumentCount(event);
+		for (int i = 0; i < count; i++) {
+			toAppendTo.append(" arg").append(i).append('=');
+			LogWriter.appendLogfmt(toAppendTo, ArgumentsResolverFactory.toArgumentString(args[i]));
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternFormatter;
+
+import java.util.List;
+
+/**
+ * A converter of {@code PatternLayout} writing the result of a nested pattern as a logfmt value.
+ * The value is quoted and escaped only when needed, the same way as {@link DefaultLogger}.
+ * Usage: {@code %logfmt{pattern}}.
+ */
+@Plugin(name = "LogfmtConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({"logfmt"})
+public final class LogfmtConverter extends LogEventPatternConverter {
+	private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+	private final PatternFormatter[] formatters;
+
+	private LogfmtConverter(List<PatternFormatter> formatters) {
+		super("logfmt", "logfmt");
+		this.formatters = formatters.toArray(PatternFormatter.EMPTY_ARRAY);
+	}
+
+	public static LogfmtConverter newInstance(Configuration config, String[] options) {
+		if (options.length != 1) {
+			LOGGER.error("Incorrect number of options on logfmt. Expected 1, received {}", options.length);
+			return null;
+		}
+		return new LogfmtConverter(PatternLayout.createPatternParser(config).parse(options[0]));
+	}
+
+	@Override
+	public void format(LogEvent event, StringBuilder toAppendTo) {
+		StringBuilder b = buffer.get();
+		b.setLength(0);
+		for (PatternFormatter formatter : this.formatters)
+			formatter.format(event, b);
+		LogWriter.appendLogfmt(toAppendTo, b);
+	}
+}
@@ -25,26 +25,52 @@ package net.smoofyuniverse.common.logger;
 import org.slf4j.ILoggerFactory;
 import org.slf4j.Logger;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A logger factory creating {@link LoggerProxy} until a delegate is set.
+ * <p>
+ * Lookups never lock once the delegate is published.
+ * Before that, proxies are cached in a concurrent map.
+ */
 public class LoggerFactoryProxy implements ILoggerFactory {
-	private final Map<String, LoggerProxy> loggers = new HashMap<>();
-	private ILoggerFactory delegate;
+	private final Map<String, LoggerProxy> loggers = new ConcurrentHashMap<>();
+	private volatile ILoggerFactory delegate;
 
 	public synchronized void setDelegate(ILoggerFactory value) {
+		if (value == null)
+			throw new IllegalArgumentException("value");
 		if (this.delegate != null)
 			throw new IllegalStateException("Delegate already changed");
 
 		this.delegate = value;
 		for (LoggerProxy logger : this.loggers.values())
-			logger.setDelegate(this.delegate);
+			logger.setDelegate(value);
 	}
 
-	@Override
-	public synchronized Logger getLogger(String name) {
+	public synchronized void setLevels(LoggerLevels value) {
 		if (this.delegate != null)
-			return this.delegate.getLogger(name);
-		return this.loggers.computeIfAbsent(name, LoggerProxy::new);
+			return;
+
+		for (LoggerProxy logger : this.loggers.values())
+			logger.setLevel(value.getLevel(logger.getName()));
+	}
+
+	@Override
+	public Logger getLogger(String name) {
+		ILoggerFactory d = this.delegate;
+		if (d != null)
+			return d.getLogger(name);
+
+		LoggerProxy logger = this.loggers.get(name);
+		if (logger == null)
+			logger = this.loggers.computeIfAbsent(name, LoggerProxy::new);
+
+		// The delegate may have been published while the proxy was being created
+		d = this.delegate;
+		if (d != null)
+			logger.setDelegate(d);
+		return logger;
 	}
 }
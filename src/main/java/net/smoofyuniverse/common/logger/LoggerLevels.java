@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.slf4j.event.Level;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Levels of {@link DefaultLogger}s by logger name.
+ * The level of a logger is the level of its longest configured ancestor, {@code a.b} being an ancestor of {@code a.b.C}.
+ */
+public final class LoggerLevels {
+	/**
+	 * The default configuration: debug for all loggers.
+	 */
+	public static final LoggerLevels DEFAULT = new LoggerLevels(Level.DEBUG, Map.of());
+
+	private final Level rootLevel;
+	private final Map<String, Level> levels;
+
+	private LoggerLevels(Level rootLevel, Map<String, Level> levels) {
+		this.rootLevel = rootLevel;
+		this.levels = levels;
+	}
+
+	/**
+	 * Gets the level of the logger.
+	 *
+	 * @param name The name of the logger.
+	 * @return The level.
+	 */
+	public Level getLevel(String name) {
+		if (this.levels.isEmpty())
+			return this.rootLevel;
+
+		while (true) {
+			Level level = this.levels.get(name);
+			if (level != null)
+				return level;
+
+			int i = name.lastIndexOf('.');
+			if (i == -1)
+				return this.rootLevel;
+			name = name.substring(0, i);
+		}
+	}
+
+	/**
+	 * Parses a configuration.
+	 * The format is a comma separated list of levels, optionally preceded by a logger name.
+	 * Example: {@code info,net.smoofyuniverse.common.event=trace}.
+	 *
+	 * @param value The configuration.
+	 * @return The levels.
+	 * @throws IllegalArgumentException if the configuration is invalid.
+	 */
+	public static LoggerLevels parse(String value) {
+		Level rootLevel = DEFAULT.rootLevel;
+		Map<String, Level> levels = new HashMap<>();
+
+		for (String part : value.split(",")) {
+			part = part.trim();
+			if (part.isEmpty())
+				continue;
+
+			int i = part.indexOf('=');
+			if (i == -1)
+				rootLevel = parseLevel(part);
+			else
+				levels.put(part.substring(0, i).trim(), parseLevel(part.substring(i + 1).trim()));
+		}
+
+		return new LoggerLevels(rootLevel, levels);
+	}
+
+	private static Level parseLevel(String value) {
+		try {
+			return Level.valueOf(value.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown level: " + value);
+		}
+	}
+
+	/**
+	 * Gets the levels defined by system property {@code app.logger.level}.
+	 *
+	 * @return The levels.
+	 */
+	static LoggerLevels fromSystemProperty() {
+		String value = System.getProperty("app.logger.level");
+		if (value != null) {
+			try {
+				return parse(value);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Invalid logger levels: " + e.getMessage());
+			}
+		}
+		return DEFAULT;
+	}
+}
@@ -25,18 +25,54 @@ package net.smoofyuniverse.common.logger;
 import org.slf4j.ILoggerFactory;
 import org.slf4j.Logger;
 import org.slf4j.Marker;
-
+import org.slf4j.event.Level;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A logger forwarding to a {@link DefaultLogger} until a logger is bound.
+ * <p>
+ * Each method checks the bound logger first and has separate call sites for the bound logger and for the default logger.
+ * Calls made before binding therefore never pollute the type profile of the bound call sites,
+ * which stay monomorphic and are inlined by the JIT.
+ * <p>
+ * The bound logger is set once and never changes.
+ * It is published with a release store and read with an acquire load,
+ * so that a thread reading the logger sees it fully initialized, and a thread not seeing it yet keeps using the default logger.
+ * An acquire load is a plain load on x86 and is cheaper than a volatile load on weaker architectures.
+ */
 class LoggerProxy implements Logger {
+	private static final VarHandle BOUND;
+
+	static {
+		try {
+			BOUND = MethodHandles.lookup().findVarHandle(LoggerProxy.class, "bound", Logger.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
 	private final String name;
-	private Logger delegate;
+	private volatile DefaultLogger fallback;
+	private Logger bound;
 
 	public LoggerProxy(String name) {
 		this.name = name;
-		this.delegate = new DefaultLogger(name);
+		this.fallback = new DefaultLogger(name);
+	}
+
+	synchronized void setDelegate(ILoggerFactory factory) {
+		if (this.bound == null)
+			BOUND.setRelease(this, factory.getLogger(this.name));
+	}
+
+	private Logger bound() {
+		return (Logger) BOUND.getAcquire(this);
 	}
 
-	void setDelegate(ILoggerFactory factory) {
-		this.delegate = factory.getLogger(this.name);
+	void setLevel(Level level) {
+		this.fallback = new DefaultLogger(this.name, level);
 	}
 
 	@Override
@@ -46,301 +82,511 @@ class LoggerProxy implements Logger {
 
 	@Override
 	public boolean isTraceEnabled() {
-		return this.delegate.isTraceEnabled();
+		Logger l = bound();
+		return l != null ? l.isTraceEnabled() : this.fallback.isTraceEnabled();
 	}
 
 	@Override
 	public void trace(String msg) {
-		this.delegate.trace(msg);
+		Logger l = bound();
+		if (l != null)
+			l.trace(msg);
+		else
+			this.fallback.trace(msg);
 	}
 
 	@Override
 	public void trace(String format, Object arg) {
-		this.delegate.trace(format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.trace(format, arg);
+		else
+			this.fallback.trace(format, arg);
 	}
 
 	@Override
 	public void trace(String format, Object arg1, Object arg2) {
-		this.delegate.trace(format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.trace(format, arg1, arg2);
+		else
+			this.fallback.trace(format, arg1, arg2);
 	}
 
 	@Override
 	public void trace(String format, Object... arguments) {
-		this.delegate.trace(format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.trace(format, arguments);
+		else
+			this.fallback.trace(format, arguments);
 	}
 
 	@Override
 	public void trace(String msg, Throwable t) {
-		this.delegate.trace(msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.trace(msg, t);
+		else
+			this.fallback.trace(msg, t);
 	}
 
 	@Override
 	public boolean isTraceEnabled(Marker marker) {
-		return this.delegate.isTraceEnabled(marker);
+		Logger l = bound();
+		return l != null ? l.isTraceEnabled(marker) : this.fallback.isTraceEnabled(marker);
 	}
 
 	@Override
 	public void trace(Marker marker, String msg) {
-		this.delegate.trace(marker, msg);
+		Logger l = bound();
+		if (l != null)
+			l.trace(marker, msg);
+		else
+			this.fallback.trace(marker, msg);
 	}
 
 	@Override
 	public void trace(Marker marker, String format, Object arg) {
-		this.delegate.trace(marker, format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.trace(marker, format, arg);
+		else
+			this.fallback.trace(marker, format, arg);
 	}
 
 	@Override
 	public void trace(Marker marker, String format, Object arg1, Object arg2) {
-		this.delegate.trace(marker, format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.trace(marker, format, arg1, arg2);
+		else
+			this.fallback.trace(marker, format, arg1, arg2);
 	}
 
 	@Override
 	public void trace(Marker marker, String format, Object... argArray) {
-		this.delegate.trace(marker, format, argArray);
+		Logger l = bound();
+		if (l != null)
+			l.trace(marker, format, argArray);
+		else
+			this.fallback.trace(marker, format, argArray);
 	}
 
 	@Override
 	public void trace(Marker marker, String msg, Throwable t) {
-		this.delegate.trace(marker, msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.trace(marker, msg, t);
+		else
+			this.fallback.trace(marker, msg, t);
 	}
 
 	@Override
 	public boolean isDebugEnabled() {
-		return this.delegate.isDebugEnabled();
+		Logger l = bound();
+		return l != null ? l.isDebugEnabled() : this.fallback.isDebugEnabled();
 	}
 
 	@Override
 	public void debug(String msg) {
-		this.delegate.debug(msg);
+		Logger l = bound();
+		if (l != null)
+			l.debug(msg);
+		else
+			this.fallback.debug(msg);
 	}
 
 	@Override
 	public void debug(String format, Object arg) {
-		this.delegate.debug(format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.debug(format, arg);
+		else
+			this.fallback.debug(format, arg);
 	}
 
 	@Override
 	public void debug(String format, Object arg1, Object arg2) {
-		this.delegate.debug(format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.debug(format, arg1, arg2);
+		else
+			this.fallback.debug(format, arg1, arg2);
 	}
 
 	@Override
 	public void debug(String format, Object... arguments) {
-		this.delegate.debug(format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.debug(format, arguments);
+		else
+			this.fallback.debug(format, arguments);
 	}
 
 	@Override
 	public void debug(String msg, Throwable t) {
-		this.delegate.debug(msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.debug(msg, t);
+		else
+			this.fallback.debug(msg, t);
 	}
 
 	@Override
 	public boolean isDebugEnabled(Marker marker) {
-		return this.delegate.isDebugEnabled(marker);
+		Logger l = bound();
+		return l != null ? l.isDebugEnabled(marker) : this.fallback.isDebugEnabled(marker);
 	}
 
 	@Override
 	public void debug(Marker marker, String msg) {
-		this.delegate.debug(marker, msg);
+		Logger l = bound();
+		if (l != null)
+			l.debug(marker, msg);
+		else
+			this.fallback.debug(marker, msg);
 	}
 
 	@Override
 	public void debug(Marker marker, String format, Object arg) {
-		this.delegate.debug(marker, format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.debug(marker, format, arg);
+		else
+			this.fallback.debug(marker, format, arg);
 	}
 
 	@Override
 	public void debug(Marker marker, String format, Object arg1, Object arg2) {
-		this.delegate.debug(marker, format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.debug(marker, format, arg1, arg2);
+		else
+			this.fallback.debug(marker, format, arg1, arg2);
 	}
 
 	@Override
 	public void debug(Marker marker, String format, Object... arguments) {
-		this.delegate.debug(marker, format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.debug(marker, format, arguments);
+		else
+			this.fallback.debug(marker, format, arguments);
 	}
 
 	@Override
 	public void debug(Marker marker, String msg, Throwable t) {
-		this.delegate.debug(marker, msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.debug(marker, msg, t);
+		else
+			this.fallback.debug(marker, msg, t);
 	}
 
 	@Override
 	public boolean isInfoEnabled() {
-		return this.delegate.isInfoEnabled();
+		Logger l = bound();
+		return l != null ? l.isInfoEnabled() : this.fallback.isInfoEnabled();
 	}
 
 	@Override
 	public void info(String msg) {
-		this.delegate.info(msg);
+		Logger l = bound();
+		if (l != null)
+			l.info(msg);
+		else
+			this.fallback.info(msg);
 	}
 
 	@Override
 	public void info(String format, Object arg) {
-		this.delegate.info(format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.info(format, arg);
+		else
+			this.fallback.info(format, arg);
 	}
 
 	@Override
 	public void info(String format, Object arg1, Object arg2) {
-		this.delegate.info(format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.info(format, arg1, arg2);
+		else
+			this.fallback.info(format, arg1, arg2);
 	}
 
 	@Override
 	public void info(String format, Object... arguments) {
-		this.delegate.info(format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.info(format, arguments);
+		else
+			this.fallback.info(format, arguments);
 	}
 
 	@Override
 	public void info(String msg, Throwable t) {
-		this.delegate.info(msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.info(msg, t);
+		else
+			this.fallback.info(msg, t);
 	}
 
 	@Override
 	public boolean isInfoEnabled(Marker marker) {
-		return this.delegate.isInfoEnabled(marker);
+		Logger l = bound();
+		return l != null ? l.isInfoEnabled(marker) : this.fallback.isInfoEnabled(marker);
 	}
 
 	@Override
 	public void info(Marker marker, String msg) {
-		this.delegate.info(marker, msg);
+		Logger l = bound();
+		if (l != null)
+			l.info(marker, msg);
+		else
+			this.fallback.info(marker, msg);
 	}
 
 	@Override
 	public void info(Marker marker, String format, Object arg) {
-		this.delegate.info(marker, format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.info(marker, format, arg);
+		else
+			this.fallback.info(marker, format, arg);
 	}
 
 	@Override
 	public void info(Marker marker, String format, Object arg1, Object arg2) {
-		this.delegate.info(marker, format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.info(marker, format, arg1, arg2);
+		else
+			this.fallback.info(marker, format, arg1, arg2);
 	}
 
 	@Override
 	public void info(Marker marker, String format, Object... arguments) {
-		this.delegate.info(marker, format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.info(marker, format, arguments);
+		else
+			this.fallback.info(marker, format, arguments);
 	}
 
 	@Override
 	public void info(Marker marker, String msg, Throwable t) {
-		this.delegate.info(marker, msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.info(marker, msg, t);
+		else
+			this.fallback.info(marker, msg, t);
 	}
 
 	@Override
 	public boolean isWarnEnabled() {
-		return this.delegate.isWarnEnabled();
+		Logger l = bound();
+		return l != null ? l.isWarnEnabled() : this.fallback.isWarnEnabled();
 	}
 
 	@Override
 	public void warn(String msg) {
-		this.delegate.warn(msg);
+		Logger l = bound();
+		if (l != null)
+			l.warn(msg);
+		else
+			this.fallback.warn(msg);
 	}
 
 	@Override
 	public void warn(String format, Object arg) {
-		this.delegate.warn(format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.warn(format, arg);
+		else
+			this.fallback.warn(format, arg);
 	}
 
 	@Override
 	public void warn(String format, Object... arguments) {
-		this.delegate.warn(format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.warn(format, arguments);
+		else
+			this.fallback.warn(format, arguments);
 	}
 
 	@Override
 	public void warn(String format, Object arg1, Object arg2) {
-		this.delegate.warn(format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.warn(format, arg1, arg2);
+		else
+			this.fallback.warn(format, arg1, arg2);
 	}
 
 	@Override
 	public void warn(String msg, Throwable t) {
-		this.delegate.warn(msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.warn(msg, t);
+		else
+			this.fallback.warn(msg, t);
 	}
 
 	@Override
 	public boolean isWarnEnabled(Marker marker) {
-		return this.delegate.isWarnEnabled(marker);
+		Logger l = bound();
+		return l != null ? l.isWarnEnabled(marker) : this.fallback.isWarnEnabled(marker);
 	}
 
 	@Override
 	public void warn(Marker marker, String msg) {
-		this.delegate.warn(marker, msg);
+		Logger l = bound();
+		if (l != null)
+			l.warn(marker, msg);
+		else
+			this.fallback.warn(marker, msg);
 	}
 
 	@Override
 	public void warn(Marker marker, String format, Object arg) {
-		this.delegate.warn(marker, format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.warn(marker, format, arg);
+		else
+			this.fallback.warn(marker, format, arg);
 	}
 
 	@Override
 	public void warn(Marker marker, String format, Object arg1, Object arg2) {
-		this.delegate.warn(marker, format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.warn(marker, format, arg1, arg2);
+		else
+			this.fallback.warn(marker, format, arg1, arg2);
 	}
 
 	@Override
 	public void warn(Marker marker, String format, Object... arguments) {
-		this.delegate.warn(marker, format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.warn(marker, format, arguments);
+		else
+			this.fallback.warn(marker, format, arguments);
 	}
 
 	@Override
 	public void warn(Marker marker, String msg, Throwable t) {
-		this.delegate.warn(marker, msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.warn(marker, msg, t);
+		else
+			this.fallback.warn(marker, msg, t);
 	}
 
 	@Override
 	public boolean isErrorEnabled() {
-		return this.delegate.isErrorEnabled();
+		Logger l = bound();
+		return l != null ? l.isErrorEnabled() : this.fallback.isErrorEnabled();
 	}
 
 	@Override
 	public void error(String msg) {
-		this.delegate.error(msg);
+		Logger l = bound();
+		if (l != null)
+			l.error(msg);
+		else
+			this.fallback.error(msg);
 	}
 
 	@Override
 	public void error(String format, Object arg) {
-		this.delegate.error(format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.error(format, arg);
+		else
+			this.fallback.error(format, arg);
 	}
 
 	@Override
 	public void error(String format, Object arg1, Object arg2) {
-		this.delegate.error(format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.error(format, arg1, arg2);
+		else
+			this.fallback.error(format, arg1, arg2);
 	}
 
 	@Override
 	public void error(String format, Object... arguments) {
-		this.delegate.error(format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.error(format, arguments);
+		else
+			this.fallback.error(format, arguments);
 	}
 
 	@Override
 	public void error(String msg, Throwable t) {
-		this.delegate.error(msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.error(msg, t);
+		else
+			this.fallback.error(msg, t);
 	}
 
 	@Override
 	public boolean isErrorEnabled(Marker marker) {
-		return this.delegate.isErrorEnabled(marker);
+		Logger l = bound();
+		return l != null ? l.isErrorEnabled(marker) : this.fallback.isErrorEnabled(marker);
 	}
 
 	@Override
 	public void error(Marker marker, String msg) {
-		this.delegate.error(marker, msg);
+		Logger l = bound();
+		if (l != null)
+			l.error(marker, msg);
+		else
+			this.fallback.error(marker, msg);
 	}
 
 	@Override
 	public void error(Marker marker, String format, Object arg) {
-		this.delegate.error(marker, format, arg);
+		Logger l = bound();
+		if (l != null)
+			l.error(marker, format, arg);
+		else
+			this.fallback.error(marker, format, arg);
 	}
 
 	@Override
 	public void error(Marker marker, String format, Object arg1, Object arg2) {
-		this.delegate.error(marker, format, arg1, arg2);
+		Logger l = bound();
+		if (l != null)
+			l.error(marker, format, arg1, arg2);
+		else
+			this.fallback.error(marker, format, arg1, arg2);
 	}
 
 	@Override
 	public void error(Marker marker, String format, Object... arguments) {
-		this.delegate.error(marker, format, arguments);
+		Logger l = bound();
+		if (l != null)
+			l.error(marker, format, arguments);
+		else
+			this.fallback.error(marker, format, arguments);
 	}
 
 	@Override
 	public void error(Marker marker, String msg, Throwable t) {
-		this.delegate.error(marker, msg, t);
+		Logger l = bound();
+		if (l != null)
+			l.error(marker, msg, t);
+		else
+			this.fallback.error(marker, msg, t);
 	}
 }
@@ -0,0 +1,537 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.slf4j.Logger;
+import org.slf4j.Marker;
+import org.slf4j.event.Level;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A logger forwarding at most a given number of messages per second for each message format and first argument.
+ * <p>
+ * Each format and first argument has its own token bucket, allowing bursts of a given number of messages.
+ * Once there are too many buckets, full buckets are evicted, and new keys share a single bucket until some room is made.
+ * Messages are only counted when their level is enabled.
+ * While messages are being suppressed, a summary with the number of suppressed messages and their format and first argument is logged every second.
+ */
+final class RateLimitedLogger implements Logger {
+	static final int MAX_BUCKETS = 1024;
+	private static final Executor defaultSummaryExecutor = CompletableFuture.delayedExecutor(1, TimeUnit.SECONDS);
+
+	private final Logger delegate;
+	private final long interval, tolerance;
+	private final LongSupplier clock;
+	private final Executor summaryExecutor;
+	private final Map<Key, Bucket> buckets = new ConcurrentHashMap<>();
+	private final Bucket sharedBucket;
+	private volatile long nextEviction;
+
+	RateLimitedLogger(Logger delegate, double perSecond, int burst) {
+		this(delegate, perSecond, burst, System::nanoTime, defaultSummaryExecutor);
+	}
+
+	RateLimitedLogger(Logger delegate, double perSecond, int burst, LongSupplier clock, Executor summaryExecutor) {
+		this.delegate = delegate;
+		this.interval = (long) (1_000_000_000 / perSecond);
+		this.tolerance = (burst - 1) * this.interval;
+		this.clock = clock;
+		this.summaryExecutor = summaryExecutor;
+		this.sharedBucket = new Bucket(null);
+		this.nextEviction = clock.getAsLong();
+	}
+
+	private boolean acquire(String format, Object arg, Level level) {
+		long now = this.clock.getAsLong();
+		Bucket b = format == null ? this.sharedBucket : getBucket(new Key(format, toKeyString(arg)), now);
+		if (b.tryAcquire(now))
+			return true;
+
+		b.level = level;
+		if (b.suppressed.getAndIncrement() == 0) {
+			Bucket bucket = b;
+			this.summaryExecutor.execute(() -> summarize(bucket));
+		}
+		return false;
+	}
+
+	private Bucket getBucket(Key key, long now) {
+		Bucket b = this.buckets.get(key);
+		if (b != null)
+			return b;
+		if (this.buckets.size() >= MAX_BUCKETS && !evictIdleBuckets(now))
+			return this.sharedBucket;
+		return this.buckets.computeIfAbsent(key, Bucket::new);
+	}
+
+	/**
+	 * Removes the buckets which are full and have no pending summary, since they behave like new buckets.
+	 * Runs at most once per interval so that a table full of active buckets is not scanned for every message.
+	 *
+	 * @param now The current time.
+	 * @return Whether a new bucket can be added.
+	 */
+	private boolean evictIdleBuckets(long now) {
+		if (now - this.nextEviction < 0)
+			return false;
+		this.nextEviction = now + this.interval;
+
+		this.buckets.values().removeIf(b -> b.isIdle(now));
+		return this.buckets.size() < MAX_BUCKETS;
+	}
+
+	private void summarize(Bucket b) {
+		long n = b.suppressed.getAndSet(0);
+		if (n == 0)
+			return;
+
+		String format;
+		Object[] args;
+		if (b.key == null) {
+			format = "{} messages suppressed";
+			args = new Object[]{n};
+		} else if (b.key.arg == null) {
+			format = "{} messages suppressed like: {}";
+			args = new Object[]{n, b.key.format};
+		} else {
+			format = "{} messages suppressed like: {} with {}";
+			args = new Object[]{n, b.key.format, b.key.arg};
+		}
+
+		switch (b.level) {
+			case TRACE -> this.delegate.trace(format, args);
+			case DEBUG -> this.delegate.debug(format, args);
+			case INFO -> this.delegate.info(format, args);
+			case WARN -> this.delegate.warn(format, args);
+			case ERROR -> this.delegate.error(format, args);
+		}
+	}
+
+	private static Object first(Object[] args) {
+		return args == null || args.length == 0 ? null : args[0];
+	}
+
+	private static String toKeyString(Object arg) {
+		if (arg == null || arg instanceof Throwable)
+			return null;
+		try {
+			return String.valueOf(arg);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	@Override
+	public String getName() {
+		return this.delegate.getName();
+	}
+
+	@Override
+	public boolean isTraceEnabled() {
+		return this.delegate.isTraceEnabled();
+	}
+
+	@Override
+	public void trace(String msg) {
+		if (this.delegate.isTraceEnabled() && acquire(msg, null, Level.TRACE))
+			this.delegate.trace(msg);
+	}
+
+	@Override
+	public void trace(String format, Object arg) {
+		if (this.delegate.isTraceEnabled() && acquire(format, arg, Level.TRACE))
+			this.delegate.trace(format, arg);
+	}
+
+	@Override
+	public void trace(String format, Object arg1, Object arg2) {
+		if (this.delegate.isTraceEnabled() && acquire(format, arg1, Level.TRACE))
+			this.delegate.trace(format, arg1, arg2);
+	}
+
+	@Override
+	public void trace(String format, Object... arguments) {
+		if (this.delegate.isTraceEnabled() && acquire(format, first(arguments), Level.TRACE))
+			this.delegate.trace(format, arguments);
+	}
+
+	@Override
+	public void trace(String msg, Throwable t) {
+		if (this.delegate.isTraceEnabled() && acquire(msg, null, Level.TRACE))
+			this.delegate.trace(msg, t);
+	}
+
+	@Override
+	public boolean isTraceEnabled(Marker marker) {
+		return this.delegate.isTraceEnabled(marker);
+	}
+
+	@Override
+	public void trace(Marker marker, String msg) {
+		if (this.delegate.isTraceEnabled(marker) && acquire(msg, null, Level.TRACE))
+			this.delegate.trace(marker, msg);
+	}
+
+	@Override
+	public void trace(Marker marker, String format, Object arg) {
+		if (this.delegate.isTraceEnabled(marker) && acquire(format, arg, Level.TRACE))
+			this.delegate.trace(marker, format, arg);
+	}
+
+	@Override
+	public void trace(Marker marker, String format, Object arg1, Object arg2) {
+		if (this.delegate.isTraceEnabled(marker) && acquire(format, arg1, Level.TRACE))
+			this.delegate.trace(marker, format, arg1, arg2);
+	}
+
+	@Override
+	public void trace(Marker marker, String format, Object... argArray) {
+		if (this.delegate.isTraceEnabled(marker) && acquire(format, first(argArray), Level.TRACE))
+			this.delegate.trace(marker, format, argArray);
+	}
+
+	@Override
+	public void trace(Marker marker, String msg, Throwable t) {
+		if (this.delegate.isTraceEnabled(marker) && acquire(msg, null, Level.TRACE))
+			this.delegate.trace(marker, msg, t);
+	}
+
+	@Override
+	public boolean isDebugEnabled() {
+		return this.delegate.isDebugEnabled();
+	}
+
+	@Override
+	public void debug(String msg) {
+		if (this.delegate.isDebugEnabled() && acquire(msg, null, Level.DEBUG))
+			this.delegate.debug(msg);
+	}
+
+	@Override
+	public void debug(String format, Object arg) {
+		if (this.delegate.isDebugEnabled() && acquire(format, arg, Level.DEBUG))
+			this.delegate.debug(format, arg);
+	}
+
+	@Override
+	public void debug(String format, Object arg1, Object arg2) {
+		if (this.delegate.isDebugEnabled() && acquire(format, arg1, Level.DEBUG))
+			this.delegate.debug(format, arg1, arg2);
+	}
+
+	@Override
+	public void debug(String format, Object... arguments) {
+		if (this.delegate.isDebugEnabled() && acquire(format, first(arguments), Level.DEBUG))
+			this.delegate.debug(format, arguments);
+	}
+
+	@Override
+	public void debug(String msg, Throwable t) {
+		if (this.delegate.isDebugEnabled() && acquire(msg, null, Level.DEBUG))
+			this.delegate.debug(msg, t);
+	}
+
+	@Override
+	public boolean isDebugEnabled(Marker marker) {
+		return this.delegate.isDebugEnabled(marker);
+	}
+
+	@Override
+	public void debug(Marker marker, String msg) {
+		if (this.delegate.isDebugEnabled(marker) && acquire(msg, null, Level.DEBUG))
+			this.delegate.debug(marker, msg);
+	}
+
+	@Override
+	public void debug(Marker marker, String format, Object arg) {
+		if (this.delegate.isDebugEnabled(marker) && acquire(format, arg, Level.DEBUG))
+			this.delegate.debug(marker, format, arg);
+	}
+
+	@Override
+	public void debug(Marker marker, String format, Object arg1, Object arg2) {
+		if (this.delegate.isDebugEnabled(marker) && acquire(format, arg1, Level.DEBUG))
+			this.delegate.debug(marker, format, arg1, arg2);
+	}
+
+	@Override
+	public void debug(Marker marker, String format, Object... arguments) {
+		if (this.delegate.isDebugEnabled(marker) && acquire(format, first(arguments), Level.DEBUG))
+			this.delegate.debug(marker, format, arguments);
+	}
+
+	@Override
+	public void debug(Marker marker, String msg, Throwable t) {
+		if (this.delegate.isDebugEnabled(marker) && acquire(msg, null, Level.DEBUG))
+			this.delegate.debug(marker, msg, t);
+	}
+
+	@Override
+	public boolean isInfoEnabled() {
+		return this.delegate.isInfoEnabled();
+	}
+
+	@Override
+	public void info(String msg) {
+		if (this.delegate.isInfoEnabled() && acquire(msg, null, Level.INFO))
+			this.delegate.info(msg);
+	}
+
+	@Override
+	public void info(String format, Object arg) {
+		if (this.delegate.isInfoEnabled() && acquire(format, arg, Level.INFO))
+			this.delegate.info(format, arg);
+	}
+
+	@Override
+	public void info(String format, Object arg1, Object arg2) {
+		if (this.delegate.isInfoEnabled() && acquire(format, arg1, Level.INFO))
+			this.delegate.info(format, arg1, arg2);
+	}
+
+	@Override
+	public void info(String format, Object... arguments) {
+		if (this.delegate.isInfoEnabled() && acquire(format, first(arguments), Level.INFO))
+			this.delegate.info(format, arguments);
+	}
+
+	@Override
+	public void info(String msg, Throwable t) {
+		if (this.delegate.isInfoEnabled() && acquire(msg, null, Level.INFO))
+			this.delegate.info(msg, t);
+	}
+
+	@Override
+	public boolean isInfoEnabled(Marker marker) {
+		return this.delegate.isInfoEnabled(marker);
+	}
+
+	@Override
+	public void info(Marker marker, String msg) {
+		if (this.delegate.isInfoEnabled(marker) && acquire(msg, null, Level.INFO))
+			this.delegate.info(marker, msg);
+	}
+
+	@Override
+	public void info(Marker marker, String format, Object arg) {
+		if (this.delegate.isInfoEnabled(marker) && acquire(format, arg, Level.INFO))
+			this.delegate.info(marker, format, arg);
+	}
+
+	@Override
+	public void info(Marker marker, String format, Object arg1, Object arg2) {
+		if (this.delegate.isInfoEnabled(marker) && acquire(format, arg1, Level.INFO))
+			this.delegate.info(marker, format, arg1, arg2);
+	}
+
+	@Override
+	public void info(Marker marker, String format, Object... arguments) {
+		if (this.delegate.isInfoEnabled(marker) && acquire(format, first(arguments), Level.INFO))
+			this.delegate.info(marker, format, arguments);
+	}
+
+	@Override
+	public void info(Marker marker, String msg, Throwable t) {
+		if (this.delegate.isInfoEnabled(marker) && acquire(msg, null, Level.INFO))
+			this.delegate.info(marker, msg, t);
+	}
+
+	@Override
+	public boolean isWarnEnabled() {
+		return this.delegate.isWarnEnabled();
+	}
+
+	@Override
+	public void warn(String msg) {
+		if (this.delegate.isWarnEnabled() && acquire(msg, null, Level.WARN))
+			this.delegate.warn(msg);
+	}
+
+	@Override
+	public void warn(String format, Object arg) {
+		if (this.delegate.isWarnEnabled() && acquire(format, arg, Level.WARN))
+			this.delegate.warn(format, arg);
+	}
+
+	@Override
+	public void warn(String format, Object... arguments) {
+		if (this.delegate.isWarnEnabled() && acquire(format, first(arguments), Level.WARN))
+			this.delegate.warn(format, arguments);
+	}
+
+	@Override
+	public void warn(String format, Object arg1, Object arg2) {
+		if (this.delegate.isWarnEnabled() && acquire(format, arg1, Level.WARN))
+			this.delegate.warn(format, arg1, arg2);
+	}
+
+	@Override
+	public void warn(String msg, Throwable t) {
+		if (this.delegate.isWarnEnabled() && acquire(msg, null, Level.WARN))
+			this.delegate.warn(msg, t);
+	}
+
+	@Override
+	public boolean isWarnEnabled(Marker marker) {
+		return this.delegate.isWarnEnabled(marker);
+	}
+
+	@Override
+	public void warn(Marker marker, String msg) {
+		if (this.delegate.isWarnEnabled(marker) && acquire(msg, null, Level.WARN))
+			this.delegate.warn(marker, msg);
+	}
+
+	@Override
+	public void warn(Marker marker, String format, Object arg) {
+		if (this.delegate.isWarnEnabled(marker) && acquire(format, arg, Level.WARN))
+			this.delegate.warn(marker, format, arg);
+	}
+
+	@Override
+	public void warn(Marker marker, String format, Object arg1, Object arg2) {
+		if (this.delegate.isWarnEnabled(marker) && acquire(format, arg1, Level.WARN))
+			this.delegate.warn(marker, format, arg1, arg2);
+	}
+
+	@Override
+	public void warn(Marker marker, String format, Object... arguments) {
+		if (this.delegate.isWarnEnabled(marker) && acquire(format, first(arguments), Level.WARN))
+			this.delegate.warn(marker, format, arguments);
+	}
+
+	@Override
+	public void warn(Marker marker, String msg, Throwable t) {
+		if (this.delegate.isWarnEnabled(marker) && acquire(msg, null, Level.WARN))
+			this.delegate.warn(marker, msg, t);
+	}
+
+	@Override
+	public boolean isErrorEnabled() {
+		return this.delegate.isErrorEnabled();
+	}
+
+	@Override
+	public void error(String msg) {
+		if (this.delegate.isErrorEnabled() && acquire(msg, null, Level.ERROR))
+			this.delegate.error(msg);
+	}
+
+	@Override
+	public void error(String format, Object arg) {
+		if (this.delegate.isErrorEnabled() && acquire(format, arg, Level.ERROR))
+			this.delegate.error(format, arg);
+	}
+
+	@Override
+	public void error(String format, Object arg1, Object arg2) {
+		if (this.delegate.isErrorEnabled() && acquire(format, arg1, Level.ERROR))
+			this.delegate.error(format, arg1, arg2);
+	}
+
+	@Override
+	public void error(String format, Object... arguments) {
+		if (this.delegate.isErrorEnabled() && acquire(format, first(arguments), Level.ERROR))
+			this.delegate.error(format, arguments);
+	}
+
+	@Override
+	public void error(String msg, Throwable t) {
+		if (this.delegate.isErrorEnabled() && acquire(msg, null, Level.ERROR))
+			this.delegate.error(msg, t);
+	}
+
+	@Override
+	public boolean isErrorEnabled(Marker marker) {
+		return this.delegate.isErrorEnabled(marker);
+	}
+
+	@Override
+	public void error(Marker marker, String msg) {
+		if (this.delegate.isErrorEnabled(marker) && acquire(msg, null, Level.ERROR))
+			this.delegate.error(marker, msg);
+	}
+
+	@Override
+	public void error(Marker marker, String format, Object arg) {
+		if (this.delegate.isErrorEnabled(marker) && acquire(format, arg, Level.ERROR))
+			this.delegate.error(marker, format, arg);
+	}
+
+	@Override
+	public void error(Marker marker, String format, Object arg1, Object arg2) {
+		if (this.delegate.isErrorEnabled(marker) && acquire(format, arg1, Level.ERROR))
+			this.delegate.error(marker, format, arg1, arg2);
+	}
+
+	@Override
+	public void error(Marker marker, String format, Object... arguments) {
+		if (this.delegate.isErrorEnabled(marker) && acquire(format, first(arguments), Level.ERROR))
+			this.delegate.error(marker, format, arguments);
+	}
+
+	@Override
+	public void error(Marker marker, String msg, Throwable t) {
+		if (this.delegate.isErrorEnabled(marker) && acquire(msg, null, Level.ERROR))
+			this.delegate.error(marker, msg, t);
+	}
+
+	private record Key(String format, String arg) {}
+
+	private final class Bucket {
+		final Key key;
+		final AtomicLong arrivalTime;
+		final AtomicLong suppressed = new AtomicLong();
+		volatile Level level;
+
+		Bucket(Key key) {
+			this.key = key;
+			this.arrivalTime = new AtomicLong(clock.getAsLong());
+		}
+
+		boolean isIdle(long now) {
+			return this.arrivalTime.get() - now <= 0 && this.suppressed.get() == 0;
+		}
+
+		/**
+		 * Generic cell rate algorithm: the arrival time is the earliest time at which a message conforms without any burst.
+		 */
+		boolean tryAcquire(long now) {
+			while (true) {
+				long time = this.arrivalTime.get();
+				if (time - now > tolerance)
+					return false;
+				if (this.arrivalTime.compareAndSet(time, (time - now < 0 ? now : time) + interval))
+					return true;
+			}
+		}
+	}
+}
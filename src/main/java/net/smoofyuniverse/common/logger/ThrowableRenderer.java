@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import java.util.*;
+
+/**
+ * Renders stack traces in the same format as {@link Throwable#printStackTrace()} into a reused buffer.
+ * <p>
+ * Each distinct trace gets an id.
+ * Recently rendered traces are remembered so that a repeated identical trace can be replaced by a reference to its id.
+ * This class is not thread-safe.
+ */
+final class ThrowableRenderer {
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private final StringBuilder text = new StringBuilder(1024);
+	private final Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Map<Key, Long> recent;
+	private final int maxDepth;
+	private long lastId;
+
+	private long id;
+	private boolean duplicate;
+
+	/**
+	 * Creates a renderer.
+	 *
+	 * @param maxDepth  The maximum number of frames rendered per throwable, or 0 for no limit.
+	 * @param cacheSize The number of recent traces remembered.
+	 */
+	ThrowableRenderer(int maxDepth, int cacheSize) {
+		this.maxDepth = maxDepth;
+		this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Renders the throwable.
+	 * The result is available through {@link #text()}, {@link #id()} and {@link #isDuplicate()}.
+	 *
+	 * @param t The throwable.
+	 */
+	void render(Throwable t) {
+		this.text.setLength(0);
+		try {
+			append(t, null, "", "");
+		} finally {
+			this.seen.clear();
+		}
+
+		Key probe = new Key(this.text);
+		Long previous = this.recent.get(probe);
+		if (previous != null) {
+			this.id = previous;
+			this.duplicate = true;
+		} else {
+			this.id = ++this.lastId;
+			this.duplicate = false;
+			this.recent.put(new Key(this.text.toString(), probe.hash), this.id);
+		}
+	}
+
+	/**
+	 * Gets the last rendered trace, without trailing line separator.
+	 *
+	 * @return The trace.
+	 */
+	CharSequence text() {
+		return this.text;
+	}
+
+	/**
+	 * Gets the id of the last rendered trace.
+	 *
+	 * @return The id.
+	 */
+	long id() {
+		return this.id;
+	}
+
+	/**
+	 * Gets whether the last rendered trace is identical to a recently rendered trace.
+	 *
+	 * @return Whether the trace is a duplicate.
+	 */
+	boolean isDuplicate() {
+		return this.duplicate;
+	}
+
+	private void append(Throwable t, StackTraceElement[] enclosingTrace, String caption, String prefix) {
+		StringBuilder b = this.text;
+		if (!b.isEmpty())
+			b.append(LINE_SEPARATOR);
+
+		if (!this.seen.add(t)) {
+			b.append(prefix).append(caption).append("[CIRCULAR REFERENCE: ").append(t).append(']');
+			return;
+		}
+		b.append(prefix).append(caption).append(t);
+
+		StackTraceElement[] trace = t.getStackTrace();
+		int m = trace.length - 1;
+		if (enclosingTrace != null) {
+			int n = enclosingTrace.length - 1;
+			while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+				m--;
+				n--;
+			}
+		}
+
+		int shown = m + 1;
+		if (this.maxDepth > 0 && shown > this.maxDepth)
+			shown = this.maxDepth;
+
+		for (int i = 0; i < shown; i++)
+			b.append(LINE_SEPARATOR).append(prefix).append("\tat ").append(trace[i]);
+		if (shown != trace.length)
+			b.append(LINE_SEPARATOR).append(prefix).append("\t... ").append(trace.length - shown).append(" more");
+
+		for (Throwable s : t.getSuppressed())
+			append(s, trace, "Suppressed: ", prefix + "\t");
+
+		Throwable cause = t.getCause();
+		if (cause != null)
+			append(cause, trace, "Caused by: ", prefix);
+	}
+
+	private static final class Key {
+		final CharSequence text;
+		final int hash;
+
+		Key(CharSequence text) {
+			this(text, hash(text));
+		}
+
+		Key(CharSequence text, int hash) {
+			this.text = text;
+			this.hash = hash;
+		}
+
+		private static int hash(CharSequence text) {
+			int h = 0;
+			for (int i = 0, n = text.length(); i < n; i++)
+				h = 31 * h + text.charAt(i);
+			return h;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key other && this.hash == other.hash && CharSequence.compare(this.text, other.text) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
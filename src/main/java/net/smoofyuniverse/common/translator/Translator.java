@@ -24,7 +24,7 @@ package net.smoofyuniverse.common.translator;
 
 import javafx.application.Platform;
 import net.smoofyuniverse.common.app.ApplicationManager;
-import net.smoofyuniverse.common.event.ListenerRegistration;
+import net.smoofyuniverse.common.event.WeakListenerRegistration;
 import net.smoofyuniverse.common.event.app.ApplicationLocaleChangeEvent;
 import net.smoofyuniverse.common.logger.ApplicationLogger;
 import org.slf4j.Logger;
@@ -45,7 +45,7 @@ public abstract class Translator {
 
 	public Translator() {
 		this.targetLocale = ApplicationManager.get().getLocale();
-		new ListenerRegistration<>(ApplicationLocaleChangeEvent.class, e -> setTargetLocale(e.newLocale()), -100).register();
+		new WeakListenerRegistration<>(this, ApplicationLocaleChangeEvent.class, (t, e) -> t.setTargetLocale(e.newLocale()), -100).register();
 	}
 
 	/**
@@ -24,6 +24,7 @@ package net.smoofyuniverse.common.util;
 
 import net.smoofyuniverse.common.download.ConnectionConfig;
 import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.common.task.IncrementalListener;
 import net.smoofyuniverse.common.task.IncrementalListenerProvider;
 import net.smoofyuniverse.common.task.io.ListenedInputStream;
 import org.slf4j.Logger;
@@ -34,14 +35,23 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.regex.Pattern;
 
 public class IOUtil {
 	private static final Logger logger = ApplicationLogger.get(IOUtil.class);
+	private static final Logger failureLogger = ApplicationLogger.rateLimited(logger, 1, 5);
+	private static final int DIGEST_BUFFER_SIZE = 1 << 16;
 
 	public static final Pattern ILLEGAL_PATH = Pattern.compile("[:\\\\/*?|<>\"]+");
 
@@ -86,65 +96,309 @@ public class IOUtil {
 		return dir.resolve(group.replace('.', '/')).resolve(name).resolve(version).resolve(name + "-" + version + suffix);
 	}
 
+	/**
+	 * Downloads the content at the URL to the file.
+	 * The content is downloaded to a sibling temporary file which is moved to the target file once complete.
+	 * See {@link #getDownloadFile(Path)} and {@link #moveAtomically(Path, Path)}.
+	 *
+	 * @param url    The URL.
+	 * @param file   The target file.
+	 * @param config The connection configuration.
+	 * @param p      A listener provider.
+	 * @return Whether the download has succeeded.
+	 */
 	public static boolean download(URL url, Path file, ConnectionConfig config, IncrementalListenerProvider p) {
 		HttpURLConnection co;
 		try {
 			co = config.openHttpConnection(url);
 			co.setRequestProperty("Accept", "application/octet-stream");
 		} catch (IOException e) {
-			logger.warn("Failed to open connection to url {}.", url, e);
+			failureLogger.warn("Failed to open connection to url {}.", url, e);
 			return false;
 		}
 
-		return download(co, file, config.bufferSize(), p);
+		Path tempFile = getDownloadFile(file);
+		if (!download(co, tempFile, config.bufferSize(), p))
+			return false;
+
+		try {
+			moveAtomically(tempFile, file);
+			return true;
+		} catch (IOException e) {
+			logger.warn("Failed to move file {} to {}", tempFile, file, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the temporary file to which the target file is downloaded.
+	 *
+	 * @param file The target file.
+	 * @return The temporary file.
+	 */
+	public static Path getDownloadFile(Path file) {
+		return file.resolveSibling(file.getFileName() + ".download");
+	}
+
+	/**
+	 * Moves the source file to the target file, replacing it.
+	 * The content of the source file is flushed to the storage device first,
+	 * then the source file is renamed atomically if the file system supports it.
+	 * Thus the target file is never observed partially written, even after a crash.
+	 *
+	 * @param source The source file.
+	 * @param target The target file.
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	public static void moveAtomically(Path source, Path target) throws IOException {
+		try (FileChannel channel = FileChannel.open(source, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
 	}
 
+	/**
+	 * Downloads the content of the connection to the file.
+	 * <p>
+	 * While the download is in progress, the URL and the ETag or Last-Modified header of the response are stored in a sibling file.
+	 * If the download is interrupted, the next download from the same URL to the same file resumes from the end of the partial file
+	 * with a range request, as long as the server still identifies the content with the same validator.
+	 * Otherwise, the file is downloaded again from the start.
+	 * The listener is credited with the bytes already present.
+	 *
+	 * @param co         The connection, not yet connected.
+	 * @param file       The target file.
+	 * @param bufferSize The buffer size.
+	 * @param p          A listener provider.
+	 * @return Whether the download has succeeded.
+	 */
 	public static boolean download(HttpURLConnection co, Path file, int bufferSize, IncrementalListenerProvider p) {
+		return download(co, file, bufferSize, p, null);
+	}
+
+	/**
+	 * Downloads the content of the connection to the file.
+	 * See {@link #download(HttpURLConnection, Path, int, IncrementalListenerProvider)}.
+	 * <p>
+	 * The digest is updated with the whole content of the file while it is written.
+	 * When resuming a download, the bytes already present are read once to update the digest.
+	 *
+	 * @param co         The connection, not yet connected.
+	 * @param file       The target file.
+	 * @param bufferSize The buffer size.
+	 * @param p          A listener provider.
+	 * @param md         The digest to update, or null.
+	 * @return Whether the download has succeeded.
+	 */
+	public static boolean download(HttpURLConnection co, Path file, int bufferSize, IncrementalListenerProvider p, MessageDigest md) {
+		Path partialFile = getPartialFile(file);
+		// The connection might follow redirects, so the URL is read before connecting
+		String url = co.getURL().toString();
+		long offset = 0;
+		try {
+			if (Files.isRegularFile(partialFile) && Files.isRegularFile(file)) {
+				// The partial file must have been downloaded from the same URL
+				List<String> state = Files.readAllLines(partialFile);
+				offset = Files.size(file);
+				if (offset != 0 && state.size() == 2 && state.get(0).equals(url) && !state.get(1).isEmpty()) {
+					co.setRequestProperty("Range", "bytes=" + offset + "-");
+					co.setRequestProperty("If-Range", state.get(1));
+				} else {
+					offset = 0;
+				}
+			}
+		} catch (IOException e) {
+			logger.debug("Failed to read partial download state of file {}", file, e);
+			offset = 0;
+		}
+
 		try {
 			co.connect();
-			if (co.getResponseCode() / 100 != 2) {
-				logger.info("Server at url {} returned a bad response code: {}", co.getURL(), co.getResponseCode());
+			int code = co.getResponseCode();
+			if (code == HttpURLConnection.HTTP_PARTIAL) {
+				if (offset == 0 || getRangeStart(co) != offset) {
+					failureLogger.info("Server at url {} returned an unexpected range: {}", co.getURL(), co.getHeaderField("Content-Range"));
+					Files.deleteIfExists(partialFile);
+					return false;
+				}
+			} else if (code / 100 == 2) {
+				offset = 0;
+			} else if (code == 416 && offset != 0 && getCompleteLength(co) == offset) {
+				// The partial file was already complete
+				logger.info("Download from url {} to file {} was already complete.", co.getURL(), file);
+				p.expect(offset).increment(offset);
+				if (md != null) {
+					md.reset();
+					updateDigest(md, file, bufferSize);
+				}
+				Files.deleteIfExists(partialFile);
+				return true;
+			} else {
+				failureLogger.info("Server at url {} returned a bad response code: {}", co.getURL(), code);
+				if (code == 416)
+					Files.deleteIfExists(partialFile);
 				return false;
 			}
 
-			logger.info("Downloading from url {} to file {} ...", co.getURL(), file);
+			long expectedLength = co.getContentLengthLong();
+			ListenedInputStream in;
+			OutputStream out;
+			if (offset == 0) {
+				String validator = getValidator(co);
+				if (validator == null)
+					Files.deleteIfExists(partialFile);
+				else
+					Files.write(partialFile, List.of(url, validator));
+
+				logger.info("Downloading from url {} to file {} ...", co.getURL(), file);
+				in = p.getInputStream(co);
+				// The file is replaced rather than truncated, in case it is a link to another file
+				Files.deleteIfExists(file);
+				out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+				if (md != null)
+					md.reset();
+			} else {
+				logger.info("Resuming download from url {} to file {} at byte {} ...", co.getURL(), file, offset);
+				IncrementalListener l = p.expect(expectedLength == -1 ? -1 : offset + expectedLength);
+				l.increment(offset);
+				in = l.wrap(co.getInputStream());
+				if (md != null) {
+					md.reset();
+					updateDigest(md, file, bufferSize);
+				}
+				out = Files.newOutputStream(file, StandardOpenOption.APPEND);
+			}
 			long time = System.currentTimeMillis();
 
-			try (ListenedInputStream in = p.getInputStream(co);
-				 OutputStream out = Files.newOutputStream(file)) {
+			try (in; out) {
 				byte[] buffer = new byte[bufferSize];
+				long total = 0;
 				int length;
-				while ((length = in.read(buffer)) != -1)
+				while ((length = in.read(buffer)) != -1) {
 					out.write(buffer, 0, length);
+					if (md != null)
+						md.update(buffer, 0, length);
+					total += length;
+				}
 
 				if (in.listener.isCancelled()) {
 					logger.debug("Download cancelled ({}s).", (System.currentTimeMillis() - time) / 1000F);
 					return false;
 				}
+
+				// The connection might end before the announced length without any error
+				if (expectedLength != -1 && total != expectedLength) {
+					failureLogger.warn("Download from url {} ended after {} of {} bytes.", co.getURL(), total, expectedLength);
+					return false;
+				}
 			}
 
+			Files.deleteIfExists(partialFile);
 			logger.debug("Download ended ({}s).", (System.currentTimeMillis() - time) / 1000F);
 			return true;
 		} catch (IOException e) {
-			logger.warn("Download from url {} failed.", co.getURL(), e);
+			failureLogger.warn("Download from url {} failed.", co.getURL(), e);
 			return false;
 		} finally {
 			co.disconnect();
 		}
 	}
 
+	/**
+	 * Gets the file storing the state of an interrupted download.
+	 *
+	 * @param file The target file.
+	 * @return The state file.
+	 */
+	public static Path getPartialFile(Path file) {
+		return file.resolveSibling(file.getFileName() + ".partial");
+	}
+
+	/**
+	 * Gets the value identifying the content of the response, suitable for an If-Range header.
+	 * This is the ETag if it is strong, or else the Last-Modified date.
+	 *
+	 * @param co The connection.
+	 * @return The validator, or null if none.
+	 */
+	public static String getValidator(URLConnection co) {
+		String etag = co.getHeaderField("ETag");
+		if (etag != null && !etag.startsWith("W/"))
+			return etag;
+		return co.getHeaderField("Last-Modified");
+	}
+
+	/**
+	 * Gets the first byte position of the Content-Range header of the response.
+	 *
+	 * @param co The connection.
+	 * @return The first byte position, or -1 if the header is missing or invalid.
+	 */
+	public static long getRangeStart(URLConnection co) {
+		String range = co.getHeaderField("Content-Range");
+		if (range == null || !range.startsWith("bytes "))
+			return -1;
+
+		int i = range.indexOf('-');
+		if (i == -1)
+			return -1;
+		try {
+			return Long.parseLong(range.substring(6, i).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static long getCompleteLength(URLConnection co) {
+		String range = co.getHeaderField("Content-Range");
+		if (range == null || !range.startsWith("bytes "))
+			return -1;
+
+		int i = range.indexOf('/');
+		if (i == -1)
+			return -1;
+		try {
+			return Long.parseLong(range.substring(i + 1).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
 	public static byte[] digest(Path file, String algorithm) throws IOException, NoSuchAlgorithmException {
-		return digest(file, algorithm, 4096);
+		return digest(file, algorithm, DIGEST_BUFFER_SIZE);
 	}
 
 	public static byte[] digest(Path file, String algorithm, int bufferSize) throws IOException, NoSuchAlgorithmException {
 		MessageDigest md = MessageDigest.getInstance(algorithm);
-		try (InputStream in = Files.newInputStream(file)) {
-			byte[] buffer = new byte[bufferSize];
-			int len;
-			while ((len = in.read(buffer)) != -1)
-				md.update(buffer, 0, len);
-			return md.digest();
+		updateDigest(md, file, bufferSize);
+		return md.digest();
+	}
+
+	/**
+	 * Updates the digest with the content of the file.
+	 * The file is read through a {@link FileChannel} into a heap buffer, sized to the file if it is smaller than the buffer size.
+	 * The file is not memory-mapped, so that it can be replaced or deleted right after.
+	 *
+	 * @param md         The digest.
+	 * @param file       The file.
+	 * @param bufferSize The buffer size.
+	 * @throws IOException if an I/O exception occurs.
+	 */
+	public static void updateDigest(MessageDigest md, Path file, int bufferSize) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			updateDigest(md, channel, ByteBuffer.allocate((int) Math.max(1, Math.min(bufferSize, channel.size()))));
+		}
+	}
+
+	static void updateDigest(MessageDigest md, FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (channel.read(buffer) != -1) {
+			md.update(buffer.array(), 0, buffer.position());
+			buffer.clear();
 		}
 	}
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.download;
+
+import net.smoofyuniverse.common.util.StringUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentStoreTest {
+	private static final byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path dir;
+
+	private static FileInfo info() throws Exception {
+		String digest = StringUtil.toHexString(MessageDigest.getInstance("SHA-256").digest(content));
+		return new FileInfo(new URL("http://localhost/file.bin"), content.length, digest, "SHA-256");
+	}
+
+	@Test
+	public void test_install() throws Exception {
+		ContentStore store = new ContentStore(this.dir.resolve("store"));
+		FileInfo info = info();
+		Path first = this.dir.resolve("first/file.bin"), second = this.dir.resolve("second/file.bin");
+
+		assertFalse(store.install(info, second));
+
+		Files.createDirectories(first.getParent());
+		Files.write(first, content);
+		store.add(info, first);
+		assertTrue(Files.exists(store.getBlob(info)));
+
+		assertTrue(store.install(info, second));
+		assertArrayEquals(content, Files.readAllBytes(second));
+		assertTrue(info.matches(second));
+	}
+
+	@Test
+	public void test_modifiedBlob() throws Exception {
+		ContentStore store = new ContentStore(this.dir.resolve("store"));
+		FileInfo info = info();
+		Path file = this.dir.resolve("file.bin");
+
+		Files.write(file, content);
+		store.add(info, file);
+		Path blob = store.getBlob(info);
+		Files.write(blob, new byte[content.length]);
+		Files.setLastModifiedTime(blob, FileTime.fromMillis(Files.getLastModifiedTime(blob).toMillis() + 2000));
+
+		assertFalse(store.install(info, this.dir.resolve("other.bin")));
+		assertFalse(Files.exists(blob));
+	}
+
+	@Test
+	public void test_collectGarbage() throws Exception {
+		ContentStore store = new ContentStore(this.dir.resolve("store"));
+		FileInfo info = info();
+		Path first = this.dir.resolve("first.bin"), second = this.dir.resolve("second.bin");
+
+		Files.write(first, content);
+		store.add(info, first);
+		assertTrue(store.install(info, second));
+
+		Files.delete(first);
+		assertEquals(0, store.collectGarbage());
+		assertTrue(Files.exists(store.getBlob(info)));
+
+		Files.delete(second);
+		Files.writeString(second, "other");
+		assertEquals(1, store.collectGarbage());
+		assertFalse(Files.exists(store.getBlob(info)));
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.download;
+
+import net.smoofyuniverse.common.task.TestIncrementalListener;
+import net.smoofyuniverse.common.util.IOUtil;
+import net.smoofyuniverse.common.util.StringUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileInfoTest {
+	private static final ExecutorService executor = Executors.newCachedThreadPool();
+	private static final ConnectionConfig config = ConnectionConfig.builder().connectTimeout(3000).readTimeout(3000)
+			.bufferSize(8192).segments(4).segmentConcurrency(3).build();
+
+	private TestFileServer server;
+
+	@TempDir
+	Path dir;
+
+	@BeforeEach
+	public void startServer() throws IOException {
+		this.server = new TestFileServer(5 << 20);
+	}
+
+	@AfterEach
+	public void stopServer() {
+		this.server.close();
+	}
+
+	@AfterAll
+	public static void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void test_segmented() throws IOException {
+		FileInfo info = new FileInfo(this.server.getURL(), this.server.content.length, null, null);
+		Path file = this.dir.resolve("file.bin");
+		TestIncrementalListener l = new TestIncrementalListener();
+
+		assertTrue(info.download(file, config, l, executor));
+		assertEquals(4, this.server.ranges.size());
+		assertArrayEquals(this.server.content, Files.readAllBytes(file));
+		assertEquals(this.server.content.length, l.getTotal());
+	}
+
+	@Test
+	public void test_withoutApplication() throws IOException {
+		FileInfo info = new FileInfo(this.server.getURL(), this.server.content.length, null, null);
+		Path file = this.dir.resolve("file.bin");
+
+		// No application manager is available, so the file is downloaded over a single connection
+		assertTrue(info.download(file, config, new TestIncrementalListener()));
+		assertTrue(this.server.ranges.isEmpty());
+		assertArrayEquals(this.server.content, Files.readAllBytes(file));
+	}
+
+	@Test
+	public void test_segmentedUnsupported() throws IOException {
+		this.server.rangesSupported = false;
+		FileInfo info = new FileInfo(this.server.getURL(), this.server.content.length, null, null);
+		Path file = this.dir.resolve("file.bin");
+		TestIncrementalListener l = new TestIncrementalListener();
+
+		assertTrue(info.download(file, config, l, executor));
+		assertArrayEquals(this.server.content, Files.readAllBytes(file));
+		assertEquals(this.server.content.length, l.getTotal());
+	}
+
+	@Test
+	public void test_verified() throws Exception {
+		String digest = StringUtil.toHexString(MessageDigest.getInstance("SHA-256").digest(this.server.content));
+		ConnectionConfig single = config.toBuilder().segments(1).build();
+
+		for (ConnectionConfig c : new ConnectionConfig[]{config, single}) {
+			Path file = this.dir.resolve("file.bin");
+			Files.deleteIfExists(file);
+			FileInfo info = new FileInfo(this.server.getURL(), this.server.content.length, digest, "SHA-256");
+
+			assertTrue(info.download(file, c, new TestIncrementalListener(), executor));
+			assertArrayEquals(this.server.content, Files.readAllBytes(file));
+			assertFalse(Files.exists(IOUtil.getDownloadFile(file)));
+			assertTrue(InstallMarker.matches(file, "SHA-256", digest));
+			assertTrue(info.matches(file));
+		}
+	}
+
+	@Test
+	public void test_corrupted() throws Exception {
+		String digest = StringUtil.toHexString(MessageDigest.getInstance("SHA-256").digest(new byte[0]));
+		ConnectionConfig single = config.toBuilder().segments(1).build();
+
+		for (ConnectionConfig c : new ConnectionConfig[]{config, single}) {
+			Path file = this.dir.resolve("file.bin");
+			FileInfo info = new FileInfo(this.server.getURL(), this.server.content.length, digest, "SHA-256");
+
+			assertFalse(info.download(file, c, new TestIncrementalListener(), executor));
+			assertEquals(0, Files.list(this.dir).count());
+		}
+	}
+
+	@Test
+	public void test_marker() throws Exception {
+		String digest = StringUtil.toHexString(MessageDigest.getInstance("SHA-256").digest(this.server.content));
+		Path file = this.dir.resolve("file.bin");
+		FileInfo info = new FileInfo(this.server.getURL(), this.server.content.length, digest, "SHA-256");
+		assertTrue(info.download(file, config, new TestIncrementalListener(), executor));
+
+		byte[] modified = this.server.content.clone();
+		modified[0]++;
+		Files.write(file, modified);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+		assertFalse(InstallMarker.matches(file, "SHA-256", digest));
+		assertFalse(info.matches(file));
+	}
+}
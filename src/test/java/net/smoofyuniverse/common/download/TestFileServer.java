@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local HTTP server serving random content, with optional support for range requests.
+ */
+public class TestFileServer implements AutoCloseable {
+	public final byte[] content;
+	public final List<String> ranges = new CopyOnWriteArrayList<>();
+	public volatile String etag = "\"v1\"";
+	public volatile boolean rangesSupported = true;
+	public volatile int truncateAt = -1;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final HttpServer server;
+
+	public TestFileServer(int size) throws IOException {
+		this.content = new byte[size];
+		new Random(42).nextBytes(this.content);
+
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.server.createContext("/file", this::handle);
+		this.server.createContext("/copy", this::handle);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+
+	public URL getURL() throws MalformedURLException {
+		return getURL("/file");
+	}
+
+	public URL getURL(String path) throws MalformedURLException {
+		return new URL("http://127.0.0.1:" + this.server.getAddress().getPort() + path);
+	}
+
+	private void handle(HttpExchange ex) throws IOException {
+		String range = ex.getRequestHeaders().getFirst("Range");
+		String ifRange = ex.getRequestHeaders().getFirst("If-Range");
+		if (range != null)
+			this.ranges.add(range);
+
+		int start = 0, end = this.content.length;
+		boolean partial = this.rangesSupported && range != null && (ifRange == null || this.etag.equals(ifRange));
+		if (partial) {
+			int i = range.indexOf('-');
+			start = Integer.parseInt(range.substring(6, i));
+			if (start >= this.content.length) {
+				ex.getResponseHeaders().set("Content-Range", "bytes */" + this.content.length);
+				ex.sendResponseHeaders(416, -1);
+				ex.close();
+				return;
+			}
+			if (i != range.length() - 1)
+				end = Integer.parseInt(range.substring(i + 1)) + 1;
+			ex.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + this.content.length);
+		}
+
+		ex.getResponseHeaders().set("ETag", this.etag);
+		ex.sendResponseHeaders(partial ? 206 : 200, end - start);
+
+		try (OutputStream out = ex.getResponseBody()) {
+			int written = this.truncateAt == -1 ? end : Math.min(end, this.truncateAt);
+			out.write(this.content, start, Math.max(written - start, 0));
+		} finally {
+			ex.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.download;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VerificationIndexTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	public void test_persistence() throws Exception {
+		Path file = this.dir.resolve("file.bin"), indexFile = this.dir.resolve("verification.index");
+		Files.writeString(file, "content");
+
+		VerificationIndex index = new VerificationIndex(indexFile);
+		index.put(file, "SHA-256", "abcd");
+		index.save();
+
+		index = VerificationIndex.load(indexFile);
+		assertTrue(index.matches(file, "SHA-256", "abcd"));
+		assertFalse(index.matches(file, "SHA-256", "abce"));
+		assertFalse(index.matches(file, "SHA-1", "abcd"));
+	}
+
+	@Test
+	public void test_retain() throws Exception {
+		Path file1 = this.dir.resolve("file1.bin"), file2 = this.dir.resolve("file2.bin"), indexFile = this.dir.resolve("verification.index");
+		Files.writeString(file1, "content1");
+		Files.writeString(file2, "content2");
+
+		VerificationIndex index = new VerificationIndex(indexFile);
+		index.put(file1, "SHA-256", "abcd");
+		index.put(file2, "SHA-256", "abcd");
+		index.save();
+
+		index = VerificationIndex.load(indexFile);
+		index.retain(List.of(file1));
+		index.save();
+
+		index = VerificationIndex.load(indexFile);
+		assertTrue(index.matches(file1, "SHA-256", "abcd"));
+		assertFalse(index.matches(file2, "SHA-256", "abcd"));
+	}
+
+	@Test
+	public void test_saveFailure() throws Exception {
+		Path file = this.dir.resolve("file.bin"), blocker = this.dir.resolve("blocker"), indexFile = blocker.resolve("verification.index");
+		Files.writeString(file, "content");
+		Files.writeString(blocker, "");
+
+		VerificationIndex index = new VerificationIndex(indexFile);
+		index.put(file, "SHA-256", "abcd");
+		assertThrows(IOException.class, index::save);
+
+		Files.delete(blocker);
+		index.save();
+		assertTrue(VerificationIndex.load(indexFile).matches(file, "SHA-256", "abcd"));
+	}
+
+	@Test
+	public void test_modified() throws Exception {
+		Path file = this.dir.resolve("file.bin");
+		Files.writeString(file, "content");
+
+		VerificationIndex index = new VerificationIndex(this.dir.resolve("verification.index"));
+		index.put(file, "SHA-256", "abcd");
+
+		Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+		assertFalse(index.matches(file, "SHA-256", "abcd"));
+
+		// Replaced by a file with the same size and modification time
+		index.put(file, "SHA-256", "abcd");
+		Path other = this.dir.resolve("other.bin");
+		Files.writeString(other, "other!!");
+		Files.setLastModifiedTime(other, Files.getLastModifiedTime(file));
+		Files.move(other, file, StandardCopyOption.REPLACE_EXISTING);
+		assertFalse(index.matches(file, "SHA-256", "abcd"));
+	}
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventManagerTest {
+
+	@Test
+	public void test_order() {
+		EventManager manager = new EventManager();
+		List<Integer> calls = new ArrayList<>();
+
+		manager.register(new ListenerRegistration<>(TestEvent.class, e -> calls.add(2), 2));
+		manager.register(new ListenerRegistration<>(Event.class, e -> calls.add(0), -5));
+		manager.register(new ListenerRegistration<>(TestEvent.class, e -> calls.add(1), 0));
+
+		assertTrue(manager.postEvent(new TestEvent()));
+		assertEquals(List.of(0, 1, 2), calls);
+
+		ListenerRegistration<TestEvent> cancel = new ListenerRegistration<>(TestEvent.class, e -> e.setCancelled(true), 1);
+		assertTrue(manager.register(cancel));
+		assertFalse(manager.register(cancel));
+
+		calls.clear();
+		assertFalse(manager.postEvent(new TestEvent()));
+		assertEquals(List.of(0, 1), calls);
+
+		assertTrue(manager.unregister(cancel));
+		assertFalse(manager.isRegistered(cancel));
+
+		calls.clear();
+		assertTrue(manager.postEvent(new TestEvent()));
+		assertEquals(List.of(0, 1, 2), calls);
+	}
+
+	@Test
+	public void test_annotated() {
+		EventManager manager = new EventManager();
+		Holder holder = new Holder();
+
+		List<ListenerRegistration<?>> list = manager.register(holder);
+		assertEquals(3, list.size());
+		assertTrue(list.stream().anyMatch(l -> l.toString().equals(Holder.class.getName() + "#cancel")));
+
+		assertFalse(manager.postEvent(new TestEvent()));
+		assertEquals(List.of("first", "cancel"), holder.calls);
+
+		for (ListenerRegistration<?> l : list)
+			assertTrue(manager.unregister(l));
+		assertTrue(manager.postEvent(new TestEvent()));
+		assertEquals(2, holder.calls.size());
+	}
+
+	@Test
+	public void test_genericInterface() {
+		EventManager manager = new EventManager();
+		HandlerImpl holder = new HandlerImpl();
+
+		assertEquals(1, manager.register(holder).size());
+		manager.postEvent(new TestEvent());
+		assertEquals(1, holder.calls);
+	}
+
+	@Test
+	public void test_genericOverride() {
+		EventManager manager = new EventManager();
+		GenericOverride holder = new GenericOverride();
+
+		assertEquals(1, manager.register(holder).size());
+		manager.postEvent(new TestEvent());
+		manager.postEvent(new ValueEvent(0));
+		assertEquals(1, holder.calls);
+	}
+
+	@Test
+	public void test_async() throws Exception {
+		EventManager manager = new EventManager();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		List<String> calls = new ArrayList<>();
+		Thread main = Thread.currentThread();
+
+		try {
+			manager.register(new ListenerRegistration<>(TestEvent.class, e -> calls.add("a" + (Thread.currentThread() == main)), 0));
+			manager.register(new ListenerRegistration<>(TestEvent.class, e -> calls.add("b" + (Thread.currentThread() == main)), 1, true, executor));
+			manager.register(new ListenerRegistration<>(TestEvent.class, e -> e.setCancelled(true), 2, true, executor));
+			manager.register(new ListenerRegistration<>(TestEvent.class, e -> calls.add("c"), 3));
+
+			assertFalse(manager.postEventAsync(new TestEvent()).get());
+			assertEquals(List.of("atrue", "bfalse"), calls);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void test_coalesced() {
+		EventManager manager = new EventManager();
+		List<Runnable> flushes = new ArrayList<>();
+		List<Integer> values = new ArrayList<>();
+
+		manager.setFlushExecutor(flushes::add);
+		manager.register(new ListenerRegistration<>(ValueEvent.class, e -> values.add(e.value)));
+
+		for (int i = 0; i < 100; i++)
+			manager.postEventCoalesced(new ValueEvent(i));
+
+		assertEquals(1, flushes.size());
+		assertTrue(values.isEmpty());
+
+		flushes.get(0).run();
+		assertEquals(List.of(99), values);
+
+		manager.postEventCoalesced(new ValueEvent(100));
+		assertEquals(2, flushes.size());
+	}
+
+	@Test
+	public void test_coalescedRejected() {
+		EventManager manager = new EventManager();
+		List<Runnable> flushes = new ArrayList<>();
+		List<Integer> values = new ArrayList<>();
+
+		manager.setFlushExecutor(r -> {
+			throw new IllegalStateException("Toolkit has exited");
+		});
+		manager.register(new ListenerRegistration<>(ValueEvent.class, e -> values.add(e.value)));
+		manager.postEventCoalesced(new ValueEvent(0));
+
+		manager.setFlushExecutor(flushes::add);
+		manager.postEventCoalesced(new ValueEvent(1));
+		assertEquals(1, flushes.size());
+
+		flushes.get(0).run();
+		assertEquals(List.of(1), values);
+	}
+
+	@Test
+	public void test_metrics() {
+		EventManager manager = new EventManager();
+		ListenerRegistration<TestEvent> ok = new ListenerRegistration<>(TestEvent.class, e -> {}),
+				failing = new ListenerRegistration<>(TestEvent.class, e -> {
+					throw new IllegalStateException("expected");
+				});
+		manager.register(ok);
+		manager.register(failing);
+
+		manager.postEvent(new TestEvent());
+		assertTrue(manager.getMetrics().isEmpty());
+
+		EventMetrics metrics = new EventMetrics(1, TimeUnit.MINUTES);
+		manager.setMetrics(metrics);
+		for (int i = 0; i < 3; i++)
+			manager.postEvent(new TestEvent());
+
+		List<EventMetrics.Entry> entries = metrics.snapshot();
+		assertEquals(2, entries.size());
+		for (EventMetrics.Entry e : entries) {
+			assertEquals(TestEvent.class, e.eventType());
+			assertEquals(3, e.invocations());
+			assertEquals(e.listener() == failing ? 3 : 0, e.exceptions());
+			assertTrue(e.maxTime() <= e.totalTime());
+		}
+
+		manager.unregister(ok);
+		entries = metrics.snapshot();
+		assertEquals(1, entries.size());
+		assertSame(failing, entries.get(0).listener());
+	}
+
+	@Test
+	public void test_metricsUnregistered() {
+		EventManager manager = new EventManager();
+		manager.setMetrics(new EventMetrics(1, TimeUnit.MINUTES));
+
+		ListenerRegistration<TestEvent> second = new ListenerRegistration<>(TestEvent.class, e -> {}, 1);
+		ListenerRegistration<TestEvent> first = new ListenerRegistration<>(TestEvent.class, e -> manager.unregister(second), 0);
+		manager.register(first);
+		manager.register(second);
+
+		// The second listener is still invoked from the dispatch table of the posted event
+		manager.postEvent(new TestEvent());
+		List<EventMetrics.Entry> entries = manager.getMetrics().orElseThrow().snapshot();
+		assertEquals(1, entries.size());
+		assertSame(first, entries.get(0).listener());
+	}
+
+	@Test
+	public void test_expiration() {
+		EventManager manager = new EventManager();
+		List<String> calls = new ArrayList<>();
+
+		Object owner = new Object();
+		WeakListenerRegistration<TestEvent, Object> weak = new WeakListenerRegistration<>(owner, TestEvent.class, (o, e) -> calls.add("weak"));
+		manager.register(weak);
+
+		ListenerRegistration<TestEvent> scoped = new ListenerRegistration<>(TestEvent.class, e -> calls.add("scoped"));
+		try (ListenerScope scope = manager.newScope()) {
+			scope.register(scoped);
+			manager.postEvent(new TestEvent());
+		}
+
+		assertEquals(List.of("weak", "scoped"), calls);
+		assertFalse(manager.isRegistered(scoped));
+		assertTrue(manager.isRegistered(weak));
+
+		owner = null;
+		for (int i = 0; i < 100 && !weak.isExpired(); i++)
+			System.gc();
+		assertTrue(weak.isExpired());
+
+		// Registering another listener triggers a rebuild of the dispatch table
+		manager.register(new ListenerRegistration<>(TestEvent.class, e -> {}));
+		calls.clear();
+		manager.postEvent(new TestEvent());
+
+		assertTrue(calls.isEmpty());
+		assertFalse(manager.isRegistered(weak));
+	}
+
+	@Test
+	public void test_concurrentChurn() throws Exception {
+		EventManager manager = new EventManager();
+		AtomicLong first = new AtomicLong(), last = new AtomicLong();
+		AtomicReference<String> failure = new AtomicReference<>();
+
+		manager.register(new ListenerRegistration<>(TestEvent.class, e -> {
+			if (e.step != 0)
+				failure.set("first listener called late");
+			e.step = 1;
+			first.incrementAndGet();
+		}, -10));
+		manager.register(new ListenerRegistration<>(TestEvent.class, e -> {
+			if (e.step != 1)
+				failure.set("last listener called early");
+			last.incrementAndGet();
+		}, 10));
+
+		int posters = 4, churners = 4, posts = 500_000;
+		AtomicBoolean running = new AtomicBoolean(true);
+		List<Thread> threads = new ArrayList<>();
+
+		for (int i = 0; i < churners; i++) {
+			threads.add(new Thread(() -> {
+				List<ListenerRegistration<?>> owned = new ArrayList<>();
+				while (running.get()) {
+					ListenerRegistration<TestEvent> l = new ListenerRegistration<>(TestEvent.class, e -> {
+						if (e.step != 1)
+							failure.set("churning listener called out of order");
+					}, 0);
+					if (!manager.register(l))
+						failure.set("register failed");
+					owned.add(l);
+
+					if (owned.size() > 8) {
+						if (!manager.unregister(owned.remove(0)))
+							failure.set("unregister failed");
+					}
+				}
+				for (ListenerRegistration<?> l : owned) {
+					if (!manager.unregister(l))
+						failure.set("unregister failed");
+				}
+			}));
+		}
+
+		List<Thread> posterThreads = new ArrayList<>();
+		for (int i = 0; i < posters; i++) {
+			posterThreads.add(new Thread(() -> {
+				for (int j = 0; j < posts; j++)
+					manager.postEvent(new TestEvent());
+			}));
+		}
+		threads.addAll(posterThreads);
+
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : posterThreads)
+			t.join();
+		running.set(false);
+		for (Thread t : threads)
+			t.join();
+
+		assertNull(failure.get());
+		assertEquals((long) posters * posts, first.get());
+		assertEquals((long) posters * posts, last.get());
+		assertEquals(2, manager.getListeners(TestEvent.class).size());
+	}
+
+	public static class Holder {
+		private final List<String> calls = new ArrayList<>();
+
+		@Listener(order = -1)
+		private void first(TestEvent event) {
+			this.calls.add("first");
+		}
+
+		@Listener(order = 1)
+		public void cancel(TestEvent event) {
+			this.calls.add("cancel");
+			event.setCancelled(true);
+		}
+
+		@Listener(order = 2)
+		public void ignored(TestEvent event) {
+			this.calls.add("ignored");
+		}
+
+		public void notListener(TestEvent event) {
+			this.calls.add("notListener");
+		}
+	}
+
+	public interface Handler<T> {
+		void on(T event);
+	}
+
+	public static class HandlerImpl implements Handler<TestEvent> {
+		private int calls;
+
+		@Listener
+		@Override
+		public void on(TestEvent event) {
+			this.calls++;
+		}
+	}
+
+	public static class GenericListener<T extends Event> {
+		@Listener
+		public void on(T event) {}
+	}
+
+	public static class GenericOverride extends GenericListener<TestEvent> {
+		private int calls;
+
+		@Listener
+		@Override
+		public void on(TestEvent event) {
+			this.calls++;
+		}
+	}
+
+	public record ValueEvent(int value) implements CoalescibleEvent {}
+
+	public static class TestEvent implements CancellableEvent {
+		private boolean cancelled;
+		private int step;
+
+		@Override
+		public boolean isCancelled() {
+			return this.cancelled;
+		}
+
+		@Override
+		public void setCancelled(boolean value) {
+			this.cancelled = value;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogWriterTest {
+	private static final String NAME = "test.LogWriterTest";
+	private static final int PRODUCERS = 4, RECORDS = 5000;
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private PrintStream out;
+
+	@BeforeEach
+	public void redirect() {
+		this.out = System.out;
+		System.setOut(new PrintStream(this.bytes, true, StandardCharsets.UTF_8));
+	}
+
+	@AfterEach
+	public void restore() {
+		System.setOut(this.out);
+	}
+
+	@Test
+	public void test_order() throws InterruptedException {
+		LogWriter writer = new LogWriter(LogFormat.TEXT, 0, true, 16, OverflowPolicy.BLOCK);
+		produce(writer);
+		// Pending records are written when closing
+		writer.close();
+
+		int[] next = new int[PRODUCERS];
+		for (String message : messages()) {
+			int[] record = parse(message);
+			assertEquals(next[record[0]]++, record[1], "Producer " + record[0]);
+		}
+		for (int i = 0; i < PRODUCERS; i++)
+			assertEquals(RECORDS, next[i], "Producer " + i);
+	}
+
+	@Test
+	public void test_drop() throws InterruptedException {
+		LogWriter writer = new LogWriter(LogFormat.TEXT, 0, true, 16, OverflowPolicy.DROP);
+		produce(writer);
+		writer.close();
+
+		int[] next = new int[PRODUCERS];
+		int written = 0, dropped = 0;
+		for (String message : messages()) {
+			if (message.endsWith(" log records have been dropped")) {
+				dropped += Integer.parseInt(message.substring(0, message.indexOf(' ')));
+				continue;
+			}
+
+			int[] record = parse(message);
+			// Dropped records leave gaps but never reorder
+			assertTrue(record[1] >= next[record[0]], "Producer " + record[0]);
+			next[record[0]] = record[1] + 1;
+			written++;
+		}
+		assertEquals(PRODUCERS * RECORDS, written + dropped);
+	}
+
+	private static void produce(LogWriter writer) throws InterruptedException {
+		Thread[] threads = new Thread[PRODUCERS];
+		for (int i = 0; i < PRODUCERS; i++) {
+			int producer = i;
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < RECORDS; j++)
+					writer.write(0, NAME, "INFO ", producer + " " + j, null, null);
+			});
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+	}
+
+	private List<String> messages() {
+		String prefix = "[LogWriterTest] INFO  - ", dropPrefix = "[DefaultLogger] WARN  - ";
+		return this.bytes.toString(StandardCharsets.UTF_8).lines()
+				.map(line -> {
+					int i = line.indexOf(prefix);
+					if (i != -1)
+						return line.substring(i + prefix.length());
+					i = line.indexOf(dropPrefix);
+					return i == -1 ? null : line.substring(i + dropPrefix.length());
+				})
+				.filter(Objects::nonNull).toList();
+	}
+
+	private static int[] parse(String message) {
+		int i = message.indexOf(' ');
+		return new int[]{Integer.parseInt(message.substring(0, i)), Integer.parseInt(message.substring(i + 1))};
+	}
+}
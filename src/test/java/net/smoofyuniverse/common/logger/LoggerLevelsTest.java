@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoggerLevelsTest {
+
+	@Test
+	public void test_default() {
+		assertEquals(Level.DEBUG, LoggerLevels.DEFAULT.getLevel("a.b.C"));
+		assertEquals(Level.WARN, LoggerLevels.parse("warn").getLevel("a.b.C"));
+	}
+
+	@Test
+	public void test_inheritance() {
+		LoggerLevels levels = LoggerLevels.parse("info, a.b=trace");
+		assertEquals(Level.TRACE, levels.getLevel("a.b"));
+		assertEquals(Level.TRACE, levels.getLevel("a.b.C"));
+		assertEquals(Level.TRACE, levels.getLevel("a.b.c.D"));
+		assertEquals(Level.INFO, levels.getLevel("a.bc.D"));
+		assertEquals(Level.INFO, levels.getLevel("a.C"));
+		assertEquals(Level.INFO, levels.getLevel("C"));
+	}
+
+	@Test
+	public void test_override() {
+		LoggerLevels levels = LoggerLevels.parse("error,a=debug,a.b=warn,a.b.C=trace");
+		assertEquals(Level.DEBUG, levels.getLevel("a.D"));
+		assertEquals(Level.WARN, levels.getLevel("a.b.D"));
+		assertEquals(Level.TRACE, levels.getLevel("a.b.C"));
+		assertEquals(Level.TRACE, levels.getLevel("a.b.C.Inner"));
+		assertEquals(Level.ERROR, levels.getLevel("b.C"));
+
+		// The last level of a logger wins
+		assertEquals(Level.INFO, LoggerLevels.parse("a=trace,a=info").getLevel("a.B"));
+	}
+
+	@Test
+	public void test_invalid() {
+		assertThrows(IllegalArgumentException.class, () -> LoggerLevels.parse("verbose"));
+		assertThrows(IllegalArgumentException.class, () -> LoggerLevels.parse("a=verbose"));
+	}
+}
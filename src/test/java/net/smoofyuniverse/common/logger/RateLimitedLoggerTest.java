@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.AbstractLogger;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitedLoggerTest {
+	private static final long SECOND = 1_000_000_000;
+
+	private final RecordingLogger recorder = new RecordingLogger();
+	private final List<Runnable> summaries = new ArrayList<>();
+	private long time;
+
+	private RateLimitedLogger create(double perSecond, int burst) {
+		return new RateLimitedLogger(this.recorder, perSecond, burst, () -> this.time, this.summaries::add);
+	}
+
+	@Test
+	public void test_refill() {
+		RateLimitedLogger logger = create(2, 1);
+
+		logger.warn("Failed {}", "a");
+		logger.warn("Failed {}", "a");
+		assertEquals(List.of("Failed a"), this.recorder.messages);
+
+		this.time += SECOND / 4;
+		logger.warn("Failed {}", "a");
+		assertEquals(1, this.recorder.messages.size());
+
+		this.time += SECOND / 4;
+		logger.warn("Failed {}", "a");
+		assertEquals(List.of("Failed a", "Failed a"), this.recorder.messages);
+	}
+
+	@Test
+	public void test_burst() {
+		RateLimitedLogger logger = create(1, 3);
+
+		for (int i = 0; i < 5; i++)
+			logger.warn("Failed {}", "a");
+		assertEquals(3, this.recorder.messages.size());
+
+		// The bucket is refilled one message per second
+		this.time += SECOND;
+		for (int i = 0; i < 5; i++)
+			logger.warn("Failed {}", "a");
+		assertEquals(4, this.recorder.messages.size());
+
+		this.time += 10 * SECOND;
+		for (int i = 0; i < 5; i++)
+			logger.warn("Failed {}", "a");
+		assertEquals(7, this.recorder.messages.size());
+	}
+
+	@Test
+	public void test_arguments() {
+		RateLimitedLogger logger = create(1, 1);
+
+		logger.warn("Failed {}", "a");
+		logger.warn("Failed {}", "b");
+		logger.warn("Failed {}", "a", new Exception());
+		logger.warn("Failed {} {}", "c", 1);
+		assertEquals(List.of("Failed a", "Failed b", "Failed c 1"), this.recorder.messages);
+	}
+
+	@Test
+	public void test_eviction() {
+		RateLimitedLogger logger = create(1, 1);
+
+		for (int i = 0; i < RateLimitedLogger.MAX_BUCKETS; i++)
+			logger.warn("Failed {}", i);
+
+		// New keys share a single bucket while all buckets are in use
+		logger.warn("Failed {}", "a");
+		logger.warn("Failed {}", "b");
+		assertEquals(RateLimitedLogger.MAX_BUCKETS + 1, this.recorder.messages.size());
+
+		// Refilled buckets are evicted to make room for new keys
+		this.time += 2 * SECOND;
+		logger.warn("Failed {}", "c");
+		logger.warn("Failed {}", "d");
+		assertEquals(List.of("Failed c", "Failed d"), this.recorder.messages.subList(RateLimitedLogger.MAX_BUCKETS + 1, this.recorder.messages.size()));
+	}
+
+	@Test
+	public void test_summary() {
+		RateLimitedLogger logger = create(1, 1);
+
+		for (int i = 0; i < 4; i++)
+			logger.warn("Failed {}", "a");
+		logger.info("Plain message");
+		logger.info("Plain message");
+		assertEquals(2, this.summaries.size());
+
+		this.recorder.messages.clear();
+		this.summaries.forEach(Runnable::run);
+		assertEquals(List.of("3 messages suppressed like: Failed {} with a", "1 messages suppressed like: Plain message"), this.recorder.messages);
+		assertEquals(List.of(Level.WARN, Level.INFO), this.recorder.levels.subList(this.recorder.levels.size() - 2, this.recorder.levels.size()));
+
+		// Counts are reset by the summary
+		this.recorder.messages.clear();
+		this.summaries.get(0).run();
+		assertTrue(this.recorder.messages.isEmpty());
+	}
+
+	@Test
+	public void test_disabled() {
+		this.recorder.enabled = false;
+		RateLimitedLogger logger = create(1, 1);
+
+		for (int i = 0; i < 3; i++)
+			logger.debug("Failed {}", "a");
+		assertTrue(this.summaries.isEmpty());
+	}
+
+	private static class RecordingLogger extends AbstractLogger {
+		final List<String> messages = new ArrayList<>();
+		final List<Level> levels = new ArrayList<>();
+		boolean enabled = true;
+
+		RecordingLogger() {
+			this.name = "recorder";
+		}
+
+		@Override
+		protected String getFullyQualifiedCallerName() {
+			return null;
+		}
+
+		@Override
+		protected void handleNormalizedLoggingCall(Level level, Marker marker, String msg, Object[] arguments, Throwable throwable) {
+			this.levels.add(level);
+			this.messages.add(MessageFormatter.basicArrayFormat(msg, arguments));
+		}
+
+		@Override
+		public boolean isTraceEnabled() {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isTraceEnabled(Marker marker) {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isDebugEnabled() {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isDebugEnabled(Marker marker) {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isInfoEnabled() {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isInfoEnabled(Marker marker) {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isWarnEnabled() {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isWarnEnabled(Marker marker) {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isErrorEnabled() {
+			return this.enabled;
+		}
+
+		@Override
+		public boolean isErrorEnabled(Marker marker) {
+			return this.enabled;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.logger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThrowableRendererTest {
+	private static final String SEP = System.lineSeparator();
+
+	@Test
+	public void test_depth() {
+		ThrowableRenderer renderer = new ThrowableRenderer(2, 8);
+		Exception cause = create("cause", "Cause", 4);
+		Exception e = create("top", "Top", 5);
+		e.initCause(cause);
+
+		renderer.render(e);
+		assertEquals(String.join(SEP,
+				"java.lang.Exception: top",
+				"\tat Top.m0(Top.java:0)",
+				"\tat Top.m1(Top.java:1)",
+				"\t... 3 more",
+				"Caused by: java.lang.Exception: cause",
+				"\tat Cause.m0(Cause.java:0)",
+				"\tat Cause.m1(Cause.java:1)",
+				"\t... 2 more"), renderer.text().toString());
+
+		// Without limit, only frames in common with the enclosing trace are omitted
+		renderer = new ThrowableRenderer(0, 8);
+		renderer.render(e);
+		assertEquals(String.join(SEP,
+				"java.lang.Exception: top",
+				"\tat Top.m0(Top.java:0)",
+				"\tat Top.m1(Top.java:1)",
+				"\tat Top.m2(Top.java:2)",
+				"\tat Top.m3(Top.java:3)",
+				"\tat Top.m4(Top.java:4)",
+				"Caused by: java.lang.Exception: cause",
+				"\tat Cause.m0(Cause.java:0)",
+				"\tat Cause.m1(Cause.java:1)",
+				"\tat Cause.m2(Cause.java:2)",
+				"\tat Cause.m3(Cause.java:3)"), renderer.text().toString());
+	}
+
+	@Test
+	public void test_duplicate() {
+		ThrowableRenderer renderer = new ThrowableRenderer(0, 8);
+
+		renderer.render(create("a", "A", 3));
+		assertFalse(renderer.isDuplicate());
+		assertEquals(1, renderer.id());
+
+		// A distinct instance with the same trace is a duplicate
+		renderer.render(create("a", "A", 3));
+		assertTrue(renderer.isDuplicate());
+		assertEquals(1, renderer.id());
+
+		renderer.render(create("b", "A", 3));
+		assertFalse(renderer.isDuplicate());
+		assertEquals(2, renderer.id());
+	}
+
+	@Test
+	public void test_eviction() {
+		ThrowableRenderer renderer = new ThrowableRenderer(0, 2);
+		Exception a = create("a", "A", 1), b = create("b", "B", 1), c = create("c", "C", 1);
+
+		renderer.render(a);
+		renderer.render(b);
+		// Rendering a again makes b the least recently used trace
+		renderer.render(a);
+		assertTrue(renderer.isDuplicate());
+		renderer.render(c);
+		assertEquals(3, renderer.id());
+
+		renderer.render(a);
+		assertTrue(renderer.isDuplicate());
+		assertEquals(1, renderer.id());
+
+		renderer.render(b);
+		assertFalse(renderer.isDuplicate());
+		assertEquals(4, renderer.id());
+	}
+
+	private static Exception create(String message, String className, int depth) {
+		Exception e = new Exception(message);
+		StackTraceElement[] trace = new StackTraceElement[depth];
+		for (int i = 0; i < depth; i++)
+			trace[i] = new StackTraceElement(className, "m" + i, className + ".java", i);
+		e.setStackTrace(trace);
+		return e;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.task;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * An {@link IncrementalListener} usable without application.
+ */
+public class TestIncrementalListener implements IncrementalListener {
+	private final AtomicLong total = new AtomicLong();
+	private volatile long expected = -1;
+	private volatile boolean cancelled;
+
+	public long getExpected() {
+		return this.expected;
+	}
+
+	@Override
+	public long getTotal() {
+		return this.total.get();
+	}
+
+	@Override
+	public void increment(long value) {
+		this.total.addAndGet(value);
+	}
+
+	@Override
+	public IncrementalListener expect(long total) {
+		this.expected = total;
+		return this;
+	}
+
+	@Override
+	public boolean isCancellable() {
+		return true;
+	}
+
+	@Override
+	public void setCancellable(boolean value) {
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	@Override
+	public void setCancelled(boolean value) {
+		this.cancelled = value;
+	}
+
+	@Override
+	public void cancelled(Consumer<Boolean> action) {
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2023 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.smoofyuniverse.common.util;
+
+import net.smoofyuniverse.common.download.TestFileServer;
+import net.smoofyuniverse.common.task.TestIncrementalListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IOUtilTest {
+	private TestFileServer server;
+
+	@TempDir
+	Path dir;
+
+	@BeforeEach
+	public void startServer() throws IOException {
+		this.server = new TestFileServer(100_000);
+	}
+
+	@AfterEach
+	public void stopServer() {
+		this.server.close();
+	}
+
+	private boolean download(Path file, TestIncrementalListener listener) throws IOException {
+		return download("/file", file, listener);
+	}
+
+	private boolean download(String path, Path file, TestIncrementalListener listener) throws IOException {
+		return IOUtil.download((HttpURLConnection) this.server.getURL(path).openConnection(), file, 4096, listener);
+	}
+
+	@Test
+	public void test_download() throws IOException {
+		Path file = this.dir.resolve("file.bin");
+		TestIncrementalListener l = new TestIncrementalListener();
+		assertTrue(download(file, l));
+		assertArrayEquals(this.server.content, Files.readAllBytes(file));
+		assertEquals(this.server.content.length, l.getTotal());
+		assertFalse(Files.exists(IOUtil.getPartialFile(file)));
+	}
+
+	@Test
+	public void test_resume() throws IOException {
+		Path file = this.dir.resolve("file.bin");
+		this.server.truncateAt = 60_000;
+		assertFalse(download(file, new TestIncrementalListener()));
+		assertTrue(Files.exists(IOUtil.getPartialFile(file)));
+		long partialSize = Files.size(file);
+		assertTrue(partialSize > 0 && partialSize <= 60_000);
+
+		this.server.truncateAt = -1;
+		TestIncrementalListener l = new TestIncrementalListener();
+		assertTrue(download(file, l));
+		assertEquals(List.of("bytes=" + partialSize + "-"), this.server.ranges);
+		assertArrayEquals(this.server.content, Files.readAllBytes(file));
+		assertEquals(this.server.content.length, l.getTotal());
+		assertEquals(this.server.content.length, l.getExpected());
+		assertFalse(Files.exists(IOUtil.getPartialFile(file)));
+	}
+
+	@Test
+	public void test_resumeChanged() throws IOException {
+		Path file = this.dir.resolve("file.bin");
+		this.server.truncateAt = 60_000;
+		assertFalse(download(file, new TestIncrementalListener()));
+
+		this.server.truncateAt = -1;
+		this.server.etag = "\"v2\"";
+		TestIncrementalListener l = new TestIncrementalListener();
+		assertTrue(download(file, l));
+		assertArrayEquals(this.server.content, Files.readAllBytes(file));
+		assertEquals(this.server.content.length, l.getTotal());
+	}
+
+	@Test
+	public void test_resumeOtherUrl() throws IOException {
+		Path file = this.dir.resolve("file.bin");
+		this.server.truncateAt = 60_000;
+		assertFalse(download(file, new TestIncrementalListener()));
+
+		// The same validator from another URL does not identify the same content
+		this.server.truncateAt = -1;
+		assertTrue(download("/copy", file, new TestIncrementalListener()));
+		assertTrue(this.server.ranges.isEmpty());
+		assertArrayEquals(this.server.content, Files.readAllBytes(file));
+	}
+
+	@Test
+	public void test_resumeComplete() throws IOException {
+		Path file = this.dir.resolve("file.bin");
+		Files.write(file, this.server.content);
+		Files.write(IOUtil.getPartialFile(file), List.of(this.server.getURL().toString(), this.server.etag));
+
+		TestIncrementalListener l = new TestIncrementalListener();
+		assertTrue(download(file, l));
+		assertEquals(List.of("bytes=" + this.server.content.length + "-"), this.server.ranges);
+		assertArrayEquals(this.server.content, Files.readAllBytes(file));
+		assertEquals(this.server.content.length, l.getTotal());
+		assertFalse(Files.exists(IOUtil.getPartialFile(file)));
+	}
+
+	@Test
+	public void test_digest() throws Exception {
+		Random random = new Random(0);
+		for (int size : new int[]{0, 1000, 100_000, 20 << 20}) {
+			byte[] content = new byte[size];
+			random.nextBytes(content);
+			Path file = this.dir.resolve("digest.bin");
+			Files.write(file, content);
+
+			assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), IOUtil.digest(file, "SHA-256"));
+			assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), IOUtil.digest(file, "SHA-256", 4096));
+		}
+	}
+
+	@Test
+	public void test_digestThenReplace() throws Exception {
+		byte[] content = new byte[20 << 20];
+		new Random(0).nextBytes(content);
+		Path file = this.dir.resolve("large.bin"), update = this.dir.resolve("update.bin");
+		Files.write(file, content);
+		Files.writeString(update, "update");
+
+		assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), IOUtil.digest(file, "SHA-256"));
+
+		// The file must not be held open or mapped anymore
+		IOUtil.moveAtomically(update, file);
+		assertEquals("update", Files.readString(file));
+		Files.delete(file);
+		assertFalse(Files.exists(file));
+	}
+}